@@ -0,0 +1,40 @@
+package com.example.les18.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every benchmark for a moment in this JVM, so a benchmark that no longer sets up or fails
+ * on its first call is caught by {@code mvn -Pjmh test} instead of by the next person measuring.
+ */
+class BenchmarkSmokeTest {
+
+    @Test
+    @DisplayName("Should run every benchmark once without failing")
+    void shouldRunEveryBenchmark() throws Exception {
+        // arrange
+        Options options = new OptionsBuilder()
+                .include(getClass().getPackageName() + ".*Benchmark")
+                .forks(0)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(50))
+                .shouldFailOnError(true)
+                .build();
+
+        // act
+        Collection<RunResult> results = new Runner(options).run();
+
+        // assert
+        assertFalse(results.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.les18.benchmark;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.OrderDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private OrderDto order;
+
+    private InvoiceDto invoice;
+
+    private byte[] orderJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        order = new OrderDto(123, "Philips televisie", 599.99, 3);
+        invoice = new InvoiceDto(123, 1799.97);
+        orderJson = mapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() throws IOException {
+        return mapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public OrderDto deserializeOrder() throws IOException {
+        return mapper.readValue(orderJson, OrderDto.class);
+    }
+
+    @Benchmark
+    public byte[] serializeInvoice() throws IOException {
+        return mapper.writeValueAsBytes(invoice);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.les18.benchmark;
+
+import com.example.les18.security.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService cachingService;
+
+    // a zero-sized cache makes every call pay for the full signature check
+    private JwtService uncachedService;
+
+    private UserDetails user;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingService = new JwtService(10_000, Duration.ofMinutes(10));
+        uncachedService = new JwtService(0, Duration.ZERO);
+        user = User.withUsername("karel").password("appel").roles("USER").build();
+        token = cachingService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachingService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsernameCached() {
+        return cachingService.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractUsernameUncached() {
+        return uncachedService.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean validateTokenCached() {
+        return cachingService.validateToken(token, user);
+    }
+
+    @Benchmark
+    public Boolean validateTokenUncached() {
+        return uncachedService.validateToken(token, user);
+    }
+}
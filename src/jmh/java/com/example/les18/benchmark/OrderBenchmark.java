@@ -0,0 +1,145 @@
+package com.example.les18.benchmark;
+
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.journal.OrderJournal;
+import com.example.les18.model.Order;
+import com.example.les18.repository.OrderRepository;
+import com.example.les18.service.OrderBatchWriter;
+import com.example.les18.service.OrderCache;
+import com.example.les18.service.OrderSearchIndex;
+import com.example.les18.service.OrderService;
+import com.example.les18.shard.OrderShards;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+    private Order order;
+
+    private OrderService cachedService;
+
+    // every lookup misses the cache and maps the entity returned by the stub repository
+    private OrderService uncachedService;
+
+    private OrderDto newOrder;
+
+    @Setup
+    public void setUp() {
+        order = new Order("Philips televisie", 599.99, 3);
+        order.setOrderid(123);
+        newOrder = new OrderDto(0, "Philips televisie", 599.99, 3);
+
+        cachedService = newService(new OrderCache(1_000));
+        uncachedService = newService(new OrderCache(0));
+    }
+
+    // the real collaborators with journal, sharding and replicas off, so every service path runs;
+    // only the database behind the repository and the transaction manager is left out
+    private OrderService newService(OrderCache cache) {
+        OrderRepository repository = stubRepository(order);
+        ApplicationEventPublisher events = event -> { };
+        PlatformTransactionManager transactionManager = new NoOpTransactionManager();
+        OrderShards unsharded = new OrderShards(List.of(), null, 0, 0);
+        OrderBatchWriter batchWriter = new OrderBatchWriter(stubEntityManager(), transactionManager, events, unsharded, 1_000);
+        OrderJournal journal = new OrderJournal(new StandardEnvironment(), null, null, null, null, null);
+        return new OrderService(repository, batchWriter, events, cache, journal,
+                new ReadYourWrites(false, Duration.ZERO), unsharded, new OrderSearchIndex(null), transactionManager);
+    }
+
+    @Benchmark
+    public double calculateAmount() {
+        return order.calculateAmount();
+    }
+
+    @Benchmark
+    public OrderDto getOrderCached() {
+        return cachedService.getOrder(123);
+    }
+
+    @Benchmark
+    public OrderDto getOrderUncached() {
+        return uncachedService.getOrder(123);
+    }
+
+    // service overhead of a write: transaction callbacks, event and cache, no database
+    @Benchmark
+    public int putOrder() {
+        return uncachedService.putOrder(newOrder);
+    }
+
+    private static OrderRepository stubRepository(Order order) {
+        AtomicInteger ids = new AtomicInteger(1_000);
+        return (OrderRepository) Proxy.newProxyInstance(OrderRepository.class.getClassLoader(),
+                new Class<?>[] { OrderRepository.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findById")) {
+                        return Optional.of(order);
+                    }
+                    if (method.getName().equals("save")) {
+                        ((Order) args[0]).setOrderid(ids.incrementAndGet());
+                        return args[0];
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static EntityManager stubEntityManager() {
+        return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[] { EntityManager.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("persist") || method.getName().equals("flush") || method.getName().equals("clear")) {
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.les18.benchmark;
+
+import com.example.les18.model.Role;
+import com.example.les18.model.User;
+import com.example.les18.security.MyUserDetails;
+import com.example.les18.security.RoleRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDetailsBenchmark {
+
+    private User user;
+
+    private RoleRegistry roleRegistry;
+
+    private MyUserDetails userDetails;
+
+    @Setup
+    public void setUp() {
+        Role userRole = new Role();
+        userRole.setRolename("ROLE_USER");
+        Role adminRole = new Role();
+        adminRole.setRolename("ROLE_ADMIN");
+
+        user = new User();
+        user.setUsername("karel");
+        user.setPassword("$2a$12$v3hpM1z6mh.ITK9UdFeeiOHOaRzvrlLCCGQc9tyZi718XWXWmLub6");
+        user.setRoles(List.of(userRole, adminRole));
+
+        // the registry is only asked for authorities here, it never touches the repository
+        roleRegistry = new RoleRegistry(null);
+        userDetails = new MyUserDetails(user, roleRegistry);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return userDetails.getAuthorities();
+    }
+
+    @Benchmark
+    public MyUserDetails createUserDetails() {
+        return new MyUserDetails(user, roleRegistry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.les18.benchmark;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.OrderDto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost per wire format. Payload sizes are printed once per format in setup,
+ * since JMH only reports times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<OrderDto>> ORDER_LIST = new TypeReference<>() { };
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+
+    private OrderDto order;
+
+    private InvoiceDto invoice;
+
+    private List<OrderDto> batch;
+
+    private byte[] orderBytes;
+
+    private byte[] invoiceBytes;
+
+    private byte[] batchBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        mapper = new ObjectMapper(factory);
+        order = new OrderDto(123, "Philips televisie", 599.99, 3);
+        invoice = new InvoiceDto(123, 1799.97);
+        batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new OrderDto(1000 + i, "Product " + (i % 10), 9.99 + i, 1 + i % 5));
+        }
+        orderBytes = mapper.writeValueAsBytes(order);
+        invoiceBytes = mapper.writeValueAsBytes(invoice);
+        batchBytes = mapper.writeValueAsBytes(batch);
+        System.out.printf("%n[%s] payload bytes: order=%d invoice=%d batch of 100=%d%n",
+                format, orderBytes.length, invoiceBytes.length, batchBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() throws IOException {
+        return mapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public OrderDto deserializeOrder() throws IOException {
+        return mapper.readValue(orderBytes, OrderDto.class);
+    }
+
+    @Benchmark
+    public byte[] serializeInvoice() throws IOException {
+        return mapper.writeValueAsBytes(invoice);
+    }
+
+    @Benchmark
+    public InvoiceDto deserializeInvoice() throws IOException {
+        return mapper.readValue(invoiceBytes, InvoiceDto.class);
+    }
+
+    @Benchmark
+    public byte[] serializeBatch() throws IOException {
+        return mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public List<OrderDto> deserializeBatch() throws IOException {
+        return mapper.readValue(batchBytes, ORDER_LIST);
+    }
+}
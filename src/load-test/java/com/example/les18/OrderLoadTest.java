@@ -0,0 +1,231 @@
+package com.example.les18;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives a mix of /auth, POST /orders, GET /orders/{id} and GET /orders/{id}/invoice against the
+ * real application on a random port and records latencies in HDR histograms.
+ * <p>
+ * Settings are system properties: loadtest.clients, loadtest.warmup, loadtest.duration and the
+ * optional thresholds loadtest.max-p99-ms and loadtest.min-throughput (requests per second).
+ * The report is written to target/load-test/report.txt.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class OrderLoadTest {
+
+    enum Operation {
+        AUTH(5), CREATE_ORDER(20), GET_ORDER(50), GET_INVOICE(25);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick() {
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            for (Operation op : values()) {
+                roll -= op.weight;
+                if (roll < 0) {
+                    return op;
+                }
+            }
+            return GET_ORDER;
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    // highest order id known to exist, GET requests pick ids at or below it
+    private final AtomicInteger maxOrderid = new AtomicInteger();
+
+    private String token;
+
+    @Test
+    void mixedWorkload() throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 32);
+        Duration warmup = Duration.parse("PT" + System.getProperty("loadtest.warmup", "5s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "30s"));
+
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new ConcurrentHistogram(3));
+            errors.put(op, new LongAdder());
+        }
+
+        send("POST", "/users", "{\"username\":\"loadtest\",\"password\":\"loadtest\",\"roles\":[]}", null);
+        token = authenticate();
+        for (int i = 0; i < 100; i++) {
+            createOrder();
+        }
+
+        run(clients, warmup);
+        latencies.values().forEach(Histogram::reset);
+        errors.values().forEach(LongAdder::reset);
+        long total = run(clients, duration);
+
+        double throughput = total / (double) duration.toSeconds();
+        Histogram all = new Histogram(3);
+        latencies.values().forEach(all::add);
+        writeReport(clients, duration, throughput, all);
+
+        long totalErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        assertEquals(0, totalErrors, "requests failed, see target/load-test/report.txt");
+        String maxP99 = System.getProperty("loadtest.max-p99-ms");
+        if (maxP99 != null) {
+            double p99 = all.getValueAtPercentile(99.0) / 1_000_000.0;
+            assertTrue(p99 <= Double.parseDouble(maxP99), "p99 " + p99 + " ms exceeds " + maxP99 + " ms");
+        }
+        String minThroughput = System.getProperty("loadtest.min-throughput");
+        if (minThroughput != null) {
+            assertTrue(throughput >= Double.parseDouble(minThroughput),
+                    "throughput " + throughput + " req/s is below " + minThroughput + " req/s");
+        }
+    }
+
+    private long run(int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                results.add(pool.submit(() -> {
+                    long requests = 0;
+                    while (System.nanoTime() < deadline) {
+                        execute(Operation.pick());
+                        requests++;
+                    }
+                    return requests;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            return total;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void execute(Operation op) {
+        long start = System.nanoTime();
+        try {
+            boolean ok = switch (op) {
+                case AUTH -> authenticate() != null;
+                case CREATE_ORDER -> createOrder() > 0;
+                case GET_ORDER -> send("GET", "/orders/" + randomOrderid(), null, token).statusCode() == 200;
+                case GET_INVOICE -> send("GET", "/orders/" + randomOrderid() + "/invoice", null, token).statusCode() == 200;
+            };
+            if (!ok) {
+                errors.get(op).increment();
+            }
+        }
+        catch (Exception ex) {
+            errors.get(op).increment();
+        }
+        latencies.get(op).recordValue(System.nanoTime() - start);
+    }
+
+    private String authenticate() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/auth", "{\"username\":\"loadtest\",\"password\":\"loadtest\"}", null);
+        return response.headers().firstValue("Authorization")
+                .map(header -> header.substring("Bearer ".length()))
+                .orElse(null);
+    }
+
+    private int createOrder() throws IOException, InterruptedException {
+        String body = "{\"productname\":\"Load test product " + ThreadLocalRandom.current().nextInt(20) + "\"," +
+                "\"unitprice\":19.99,\"quantity\":" + (1 + ThreadLocalRandom.current().nextInt(10)) + "}";
+        HttpResponse<String> response = send("POST", "/orders", body, token);
+        if (response.statusCode() != 201) {
+            return -1;
+        }
+        int orderid = Integer.parseInt(response.body().trim());
+        maxOrderid.accumulateAndGet(orderid, Math::max);
+        return orderid;
+    }
+
+    private int randomOrderid() {
+        // ids come from a pooled sequence, so low ids of the seeded range are known to exist
+        return 1 + ThreadLocalRandom.current().nextInt(Math.min(maxOrderid.get(), 100));
+    }
+
+    private HttpResponse<String> send(String method, String path, String json, String bearer)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+        if (json != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(json));
+        }
+        else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        if (bearer != null) {
+            request.header("Authorization", "Bearer " + bearer);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void writeReport(int clients, Duration duration, double throughput, Histogram all) throws IOException {
+        Path dir = Path.of("target", "load-test");
+        Files.createDirectories(dir);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve("report.txt")))) {
+            out.printf("clients=%d duration=%ds throughput=%.1f req/s%n%n", clients, duration.toSeconds(), throughput);
+            out.printf("%-14s %10s %8s %10s %10s %10s %10s%n", "operation", "requests", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            for (Operation op : Operation.values()) {
+                printRow(out, op.name(), latencies.get(op), errors.get(op).sum());
+            }
+            printRow(out, "ALL", all, errors.values().stream().mapToLong(LongAdder::sum).sum());
+            out.println();
+            out.println("latency distribution for all operations (ms):");
+            all.outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errorCount) {
+        out.printf("%-14s %10d %8d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(), errorCount,
+                histogram.getValueAtPercentile(50.0) / 1_000_000.0,
+                histogram.getValueAtPercentile(99.0) / 1_000_000.0,
+                histogram.getValueAtPercentile(99.9) / 1_000_000.0,
+                histogram.getMaxValue() / 1_000_000.0);
+    }
+}
@@ -2,12 +2,17 @@ package com.example.les18;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class Les18Testen {
 
 	public static void main(String[] args) {
-		SpringApplication.run(Les18Testen.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(Les18Testen.class, args);
+		if (Boolean.getBoolean("app.cds.training")) {
+			// class-data-sharing training run (fast-startup build profile): the JVM writes the archive on exit
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
@@ -0,0 +1,99 @@
+package com.example.les18.concurrent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Global in-flight limit that adapts to the latency it observes (AIMD): requests that finish
+ * within the latency target raise the limit by about one per limit's worth of requests, a slow
+ * or failed request lowers it by the backoff factor, at most once per latency target.
+ * <p>
+ * The in-flight count is a {@link LongAdder} and the limit a single CAS-updated value, so
+ * nothing blocks. The check and the increment in {@link #tryAcquire} are not atomic together;
+ * concurrent arrivals can overshoot the limit by a few requests, which is fine for shedding load.
+ */
+public class AdaptiveConcurrencyLimit implements MeterBinder {
+
+    // increases are applied in batches of this many, on average, to keep CAS traffic on the limit low
+    private static final int INCREASE_BATCH = 16;
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoff;
+
+    private final LongAdder inflight = new LongAdder();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecrease;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget, double backoff) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.backoff = backoff;
+        this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+        this.lastDecrease = new AtomicLong(System.nanoTime() - latencyTargetNanos);
+    }
+
+    public boolean tryAcquire() {
+        if (inflight.sum() >= limit()) {
+            return false;
+        }
+        inflight.increment();
+        return true;
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire} and adjusts the limit to how it went.
+     */
+    public void release(long latencyNanos, boolean failed) {
+        long inflightBefore = inflight.sum();
+        inflight.decrement();
+        if (failed || latencyNanos > latencyTargetNanos) {
+            long now = System.nanoTime();
+            long last = lastDecrease.get();
+            if (now - last >= latencyTargetNanos && lastDecrease.compareAndSet(last, now)) {
+                update(limit -> Math.max(minLimit, limit * backoff));
+            }
+        }
+        else if (2 * inflightBefore >= limit() && ThreadLocalRandom.current().nextInt(INCREASE_BATCH) == 0) {
+            // only grow while the limit is actually being used
+            update(limit -> Math.min(maxLimit, limit + INCREASE_BATCH / limit));
+        }
+    }
+
+    public int limit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    public long inflight() {
+        return inflight.sum();
+    }
+
+    private void update(DoubleUnaryOperator adjustment) {
+        long current;
+        long next;
+        do {
+            current = limitBits.get();
+            next = Double.doubleToRawLongBits(adjustment.applyAsDouble(Double.longBitsToDouble(current)));
+        } while (!limitBits.compareAndSet(current, next));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("admission.limit", this, AdaptiveConcurrencyLimit::limit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("admission.inflight", this, AdaptiveConcurrencyLimit::inflight)
+                .description("Requests admitted and not yet completed")
+                .register(registry);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.les18.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Fixed-size worker pool with a bounded queue. Work that does not fit in the queue is
+ * rejected immediately with a {@link BulkheadFullException} instead of piling up.
+ */
+public class Bulkhead implements MeterBinder, AutoCloseable {
+
+    private final String name;
+    private final Duration retryAfter;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public Bulkhead(String name, int threads, int queueCapacity, Duration retryAfter) {
+        this.name = name;
+        this.retryAfter = retryAfter;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory(name + "-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        }
+        catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new BulkheadFullException(name, retryAfter);
+        }
+    }
+
+    /**
+     * Like {@link #supply(Supplier)}, but the future fails with a {@link TimeoutException} once
+     * the timeout has passed. The task itself keeps running to completion.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task, Duration timeout) {
+        CompletableFuture<T> future = supply(task).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        future.whenComplete((result, ex) -> {
+            if (ex instanceof TimeoutException) {
+                timedOut.increment();
+            }
+        });
+        return future;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("bulkhead.queued", executor, e -> e.getQueue().size())
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("bulkhead.saturation", executor, e -> (double) e.getActiveCount() / e.getMaximumPoolSize())
+                .tag("bulkhead", name)
+                .register(registry);
+        FunctionCounter.builder("bulkhead.rejected", rejected, LongAdder::sum)
+                .tag("bulkhead", name)
+                .register(registry);
+        FunctionCounter.builder("bulkhead.timeouts", timedOut, LongAdder::sum)
+                .tag("bulkhead", name)
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.les18.concurrent;
+
+import java.time.Duration;
+
+public class BulkheadFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public BulkheadFullException(String bulkhead, Duration retryAfter) {
+        super("Too many concurrent requests for " + bulkhead);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.les18.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller work for one workload on that workload's own {@link Bulkhead}, so a slow
+ * workload cannot tie up the request threads of the others. Only present when
+ * {@code app.async.enabled} is set; the async controllers use it to wrap the synchronous ones,
+ * which stay in charge when async mode is off.
+ */
+@Component
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "true")
+public class Bulkheads implements MeterBinder, AutoCloseable {
+
+    public enum Workload {
+        USERS, ORDER_READ, ORDER_WRITE;
+
+        String propertyName() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+    private final Map<Workload, Duration> timeouts = new EnumMap<>(Workload.class);
+
+    public Bulkheads(Environment env) {
+        for (Workload workload : Workload.values()) {
+            String prefix = "app.async." + workload.propertyName() + ".";
+            int threads = env.getProperty(prefix + "threads", Integer.class, 16);
+            int queueCapacity = env.getProperty(prefix + "queue-capacity", Integer.class, 100);
+            Duration retryAfter = env.getProperty(prefix + "retry-after", Duration.class, Duration.ofSeconds(1));
+            bulkheads.put(workload, new Bulkhead(workload.propertyName(), threads, queueCapacity, retryAfter));
+            timeouts.put(workload, env.getProperty(prefix + "timeout", Duration.class, Duration.ofSeconds(10)));
+        }
+    }
+
+    public <T> CompletableFuture<T> supply(Workload workload, Supplier<T> task) {
+        // carry the caller's authentication over to the worker thread
+        SecurityContext context = SecurityContextHolder.getContext();
+        return bulkheads.get(workload).supply(() -> {
+            SecurityContextHolder.setContext(context);
+            try {
+                return task.get();
+            }
+            finally {
+                SecurityContextHolder.clearContext();
+            }
+        }, timeouts.get(workload));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        bulkheads.values().forEach(bulkhead -> bulkhead.bindTo(registry));
+    }
+
+    @Override
+    public void close() {
+        bulkheads.values().forEach(Bulkhead::close);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.les18.concurrent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per key, refilled at {@code ratePerSecond} and holding at most {@code burst}
+ * tokens. Each bucket is a single {@link AtomicLong} with the time at which it will be full
+ * again (the GCRA formulation), so taking a token is one compare-and-set and never blocks.
+ * Buckets of keys that stay idle are dropped.
+ */
+public class TokenBuckets implements MeterBinder {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBuckets(double ratePerSecond, int burst, Duration idleTimeout, long maxKeys) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    /**
+     * Takes a token from the key's bucket. Returns 0 when one was available, otherwise the
+     * nanoseconds until the next token, without taking anything.
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong full = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = full.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (full.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("admission.buckets", buckets, Cache::estimatedSize)
+                .description("Users with an active token bucket")
+                .register(registry);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.les18.controller;
+
+import com.example.les18.concurrent.Bulkheads;
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.InvoiceSummaryDto;
+import com.example.les18.service.InvoiceService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.les18.concurrent.Bulkheads.Workload.ORDER_READ;
+
+@RestController
+@RequestMapping("/orders/invoices")
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "true")
+public class AsyncInvoiceController {
+
+    private final InvoiceController delegate;
+    private final Bulkheads bulkheads;
+
+    public AsyncInvoiceController(InvoiceService service, Bulkheads bulkheads) {
+        this.delegate = new InvoiceController(service);
+        this.bulkheads = bulkheads;
+    }
+
+    @GetMapping("")
+    public CompletableFuture<ResponseEntity<List<InvoiceDto>>> getInvoices(@RequestParam List<Integer> ids) {
+        // an oversized request is turned away before it takes a bulkhead slot
+        InvoiceController.checkIds(ids);
+        return bulkheads.supply(ORDER_READ, () -> delegate.getInvoices(ids));
+    }
+
+    @GetMapping("/summary")
+    public CompletableFuture<ResponseEntity<InvoiceSummaryDto>> getSummary() {
+        return bulkheads.supply(ORDER_READ, delegate::getSummary);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.les18.controller;
+
+import com.example.les18.concurrent.Bulkheads;
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.dto.OrderPageDto;
+import com.example.les18.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.les18.concurrent.Bulkheads.Workload.ORDER_READ;
+import static com.example.les18.concurrent.Bulkheads.Workload.ORDER_WRITE;
+
+// the mappings of OrderController, run on the order bulkheads so the request thread is released
+@RestController
+@RequestMapping("/orders")
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "true")
+public class AsyncOrderController {
+
+    private final OrderController delegate;
+    private final Bulkheads bulkheads;
+
+    public AsyncOrderController(OrderService service, Bulkheads bulkheads, ObjectMapper mapper) {
+        this.delegate = new OrderController(service, mapper);
+        this.bulkheads = bulkheads;
+    }
+
+    @PostMapping("")
+    public CompletableFuture<ResponseEntity<Integer>> createOrder(@RequestBody OrderDto newOrderDto) {
+        return bulkheads.supply(ORDER_WRITE, () -> delegate.createOrder(newOrderDto));
+    }
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            WireFormatConfig.APPLICATION_SMILE_VALUE})
+    public CompletableFuture<ResponseEntity<List<Integer>>> createOrders(@RequestBody List<OrderDto> newOrderDtos) {
+        return bulkheads.supply(ORDER_WRITE, () -> delegate.createOrders(newOrderDtos));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public CompletableFuture<ResponseEntity<List<Integer>>> createOrdersNdjson(InputStream body) {
+        return bulkheads.supply(ORDER_WRITE, () -> delegate.createOrdersNdjson(body));
+    }
+
+    @GetMapping("")
+    public CompletableFuture<ResponseEntity<OrderPageDto>> listOrders(@RequestParam(required = false) String after,
+                                                                      @RequestParam(defaultValue = "50") int limit) {
+        return bulkheads.supply(ORDER_READ, () -> delegate.listOrders(after, limit));
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<OrderPageDto>> searchOrders(@RequestParam String q,
+                                                                        @RequestParam(required = false) String after,
+                                                                        @RequestParam(defaultValue = "50") int limit) {
+        return bulkheads.supply(ORDER_READ, () -> delegate.searchOrders(q, after, limit));
+    }
+
+    // already streamed on an MVC task thread, not on a bulkhead
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format) {
+        return delegate.exportOrders(format);
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<OrderDto>> retrieveOrder(@PathVariable int id,
+                                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bulkheads.supply(ORDER_READ, () -> delegate.retrieveOrder(id, ifNoneMatch));
+    }
+
+    @GetMapping("/{id}/invoice")
+    public CompletableFuture<ResponseEntity<InvoiceDto>> getAmount(@PathVariable int id,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bulkheads.supply(ORDER_READ, () -> delegate.getAmount(id, ifNoneMatch));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.les18.controller;
+
+import com.example.les18.concurrent.Bulkheads;
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.dto.RoleDto;
+import com.example.les18.repository.RoleRepository;
+import com.example.les18.security.CachedUserDetailsService;
+import com.example.les18.security.RoleRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.les18.concurrent.Bulkheads.Workload.USERS;
+
+@RestController
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "true")
+public class AsyncRoleController {
+
+    private final RoleController delegate;
+    private final Bulkheads bulkheads;
+
+    public AsyncRoleController(RoleRepository repos, CachedUserDetailsService userCache, RoleRegistry roleRegistry,
+                               Bulkheads bulkheads, ReadYourWrites readYourWrites) {
+        this.delegate = new RoleController(repos, userCache, roleRegistry, readYourWrites);
+        this.bulkheads = bulkheads;
+    }
+
+    @PostMapping("/roles")
+    public CompletableFuture<String> createRole(@RequestBody RoleDto role) {
+        return bulkheads.supply(USERS, () -> delegate.createRole(role));
+    }
+}
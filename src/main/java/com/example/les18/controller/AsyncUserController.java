@@ -0,0 +1,56 @@
+package com.example.les18.controller;
+
+import com.example.les18.concurrent.Bulkheads;
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.dto.UserBatchResultDto;
+import com.example.les18.dto.UserDto;
+import com.example.les18.repository.UserRepository;
+import com.example.les18.security.CachedUserDetailsService;
+import com.example.les18.security.RoleRegistry;
+import com.example.les18.security.TokenVersions;
+import com.example.les18.service.UserBatchWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.les18.concurrent.Bulkheads.Workload.USERS;
+
+@RestController
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "true")
+public class AsyncUserController {
+
+    private final UserController delegate;
+    private final Bulkheads bulkheads;
+
+    public AsyncUserController(UserRepository userRepos, RoleRegistry roleRegistry, PasswordEncoder encoder,
+                               CachedUserDetailsService userCache, TokenVersions tokenVersions,
+                               UserBatchWriter batchWriter, Bulkheads bulkheads, EntityManager entityManager,
+                               ReadYourWrites readYourWrites) {
+        this.delegate = new UserController(userRepos, roleRegistry, encoder, userCache, tokenVersions, batchWriter,
+                entityManager, readYourWrites);
+        this.bulkheads = bulkheads;
+    }
+
+    @PostMapping("/users")
+    public CompletableFuture<String> createUser(@RequestBody UserDto userDto) {
+        return bulkheads.supply(USERS, () -> delegate.createUser(userDto));
+    }
+
+    // not on the users bulkhead: a large batch runs for minutes, hashing happens on the writer's own pool
+    @PostMapping("/users/batch")
+    public UserBatchResultDto createUsers(@RequestBody List<UserDto> userDtos) {
+        return delegate.createUsers(userDtos);
+    }
+
+    @PostMapping("/users/{username}/logout")
+    public String logoutUser(@PathVariable String username) {
+        return delegate.logoutUser(username);
+    }
+}
@@ -1,46 +1,104 @@
 package com.example.les18.controller;
 
+import com.example.les18.concurrent.Bulkhead;
 import com.example.les18.dto.AuthDto;
+import com.example.les18.dto.RevocationDto;
+import com.example.les18.metrics.HotPathMetrics;
 import com.example.les18.security.JwtService;
+import com.example.les18.security.TokenRevocationStore;
+import com.example.les18.security.TokenVersions;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 public class AuthController {
 
     private final AuthenticationManager authManager;
     private final JwtService jwtService;
+    private final Bulkhead authBulkhead;
+    private final TokenVersions tokenVersions;
+    private final TokenRevocationStore revocations;
+    private final boolean stateless;
+    private final Counter badCredentials;
+    private final Counter otherFailures;
 
-    public AuthController(AuthenticationManager man, JwtService service) {
+    public AuthController(AuthenticationManager man, JwtService service, @Qualifier("authBulkhead") Bulkhead authBulkhead,
+                          HotPathMetrics metrics, TokenVersions tokenVersions, TokenRevocationStore revocations,
+                          @Value("${app.auth.stateless:false}") boolean stateless) {
         this.authManager = man;
         this.jwtService = service;
+        this.authBulkhead = authBulkhead;
+        this.tokenVersions = tokenVersions;
+        this.revocations = revocations;
+        this.stateless = stateless;
+        this.badCredentials = metrics.counter("auth.failures", "cause", "bad-credentials");
+        this.otherFailures = metrics.counter("auth.failures", "cause", "sign-in-rejected");
     }
 
+    // BCrypt runs on the auth bulkhead, never on the request thread
     @PostMapping("/auth")
-    public ResponseEntity<Object> signIn(@RequestBody AuthDto authDto) {
+    public CompletableFuture<ResponseEntity<Object>> signIn(@RequestBody AuthDto authDto) {
             UsernamePasswordAuthenticationToken up =
                     new UsernamePasswordAuthenticationToken(authDto.username, authDto.password);
 
+            return authBulkhead.supply(() -> authenticate(up));
+    }
+
+    // the filter has already accepted the token, so it parses from the cache
+    @PostMapping("/auth/logout")
+    public ResponseEntity<Object> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+            Claims claims = jwtService.parseToken(authorization.substring("Bearer ".length()));
+            if (claims.getId() == null) {
+                return ResponseEntity.badRequest().body("Token cannot be revoked");
+            }
+            revocations.revoke(claims.getId(), claims.getExpiration().getTime());
+            return ResponseEntity.ok("Logged out");
+    }
+
+    @PostMapping("/auth/revocations")
+    public ResponseEntity<Object> revoke(@RequestBody RevocationDto revocationDto) {
+            if (revocationDto.jti == null || revocationDto.jti.isBlank()) {
+                return ResponseEntity.badRequest().body("jti is required");
+            }
+            long expiresAt = revocationDto.expiresAt != null
+                    ? revocationDto.expiresAt
+                    : System.currentTimeMillis() + JwtService.TOKEN_VALIDITY.toMillis();
+            revocations.revoke(revocationDto.jti, expiresAt);
+            return ResponseEntity.ok("Done");
+    }
+
+    private ResponseEntity<Object> authenticate(UsernamePasswordAuthenticationToken up) {
             try {
                 Authentication auth = authManager.authenticate(up);
 
                 UserDetails ud = (UserDetails) auth.getPrincipal();
-                String token = jwtService.generateToken(ud);
+                String token = stateless
+                        ? jwtService.generateToken(ud, tokenVersions.current(ud.getUsername()))
+                        : jwtService.generateToken(ud);
 
                 return ResponseEntity.ok()
                         .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                         .body("Token generated");
             }
             catch (AuthenticationException ex) {
+                HotPathMetrics.increment(ex instanceof BadCredentialsException ? badCredentials : otherFailures);
                 return new ResponseEntity(ex.getMessage(), HttpStatus.UNAUTHORIZED);
             }
     }
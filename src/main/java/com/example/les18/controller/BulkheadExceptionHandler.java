@@ -0,0 +1,28 @@
+package com.example.les18.controller;
+
+import com.example.les18.concurrent.BulkheadFullException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.TimeoutException;
+
+@RestControllerAdvice
+public class BulkheadExceptionHandler {
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<String> bulkheadFull(BulkheadFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<String> bulkheadTimeout(TimeoutException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Request timed out");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.les18.controller;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.InvoiceSummaryDto;
+import com.example.les18.service.InvoiceService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/orders/invoices")
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "false", matchIfMissing = true)
+public class InvoiceController {
+    private static final int MAX_IDS = 1000;
+
+    private final InvoiceService service;
+
+    public InvoiceController(InvoiceService service) {
+        this.service = service;
+    }
+
+    @GetMapping("")
+    public ResponseEntity<List<InvoiceDto>> getInvoices(@RequestParam List<Integer> ids) {
+        checkIds(ids);
+        return new ResponseEntity<>(service.getInvoices(ids), HttpStatus.OK);
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<InvoiceSummaryDto> getSummary() {
+        return new ResponseEntity<>(service.getSummary(), HttpStatus.OK);
+    }
+
+    static void checkIds(List<Integer> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_IDS + " ids per request");
+        }
+    }
+}
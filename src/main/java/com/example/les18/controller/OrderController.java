@@ -2,18 +2,49 @@ package com.example.les18.controller;
 
 import com.example.les18.dto.InvoiceDto;
 import com.example.les18.dto.OrderDto;
+import com.example.les18.dto.OrderPageDto;
 import com.example.les18.service.OrderService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// runs on the request thread; AsyncOrderController takes over the mappings in async mode
 @RestController
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "false", matchIfMissing = true)
 @RequestMapping("/orders")
 public class OrderController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final OrderService service;
+    private final ObjectReader orderReader;
+    private final Map<OrderExportFormat, ObjectWriter> exportWriters = new EnumMap<>(OrderExportFormat.class);
 
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, ObjectMapper mapper) {
         this.service = service;
+        this.orderReader = mapper.readerFor(OrderDto.class);
+        ObjectWriter orderWriter = mapper.writerFor(OrderDto.class).without(SerializationFeature.INDENT_OUTPUT);
+        exportWriters.put(OrderExportFormat.NDJSON, orderWriter);
+        exportWriters.put(OrderExportFormat.CSV, orderWriter);
+        exportWriters.put(OrderExportFormat.CBOR, mapper.copyWith(new CBORFactory()).writerFor(OrderDto.class));
+        exportWriters.put(OrderExportFormat.SMILE, mapper.copyWith(new SmileFactory()).writerFor(OrderDto.class));
     }
 
     @PostMapping("")
@@ -22,17 +53,112 @@ public class OrderController {
         return new ResponseEntity<>(orderid, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            WireFormatConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<Integer>> createOrders(@RequestBody List<OrderDto> newOrderDtos) {
+        List<Integer> orderids = service.putOrders(newOrderDtos.iterator());
+        return new ResponseEntity<>(orderids, HttpStatus.CREATED);
+    }
+
+    // newline-delimited JSON is read one order at a time, the body is never held in memory as a whole
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<Integer>> createOrdersNdjson(InputStream body) {
+        try (MappingIterator<OrderDto> newOrderDtos = orderReader.readValues(body)) {
+            List<Integer> orderids = service.putOrders(newOrderDtos);
+            return new ResponseEntity<>(orderids, HttpStatus.CREATED);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @GetMapping("")
+    public ResponseEntity<OrderPageDto> listOrders(@RequestParam(required = false) String after,
+                                                   @RequestParam(defaultValue = "50") int limit) {
+        int afterOrderid = OrderCursor.decode(after);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        OrderPageDto page = new OrderPageDto();
+        page.orders = service.listOrders(afterOrderid, pageSize);
+        if (page.orders.size() == pageSize) {
+            page.next = OrderCursor.encode(page.orders.get(pageSize - 1).orderid);
+        }
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<OrderPageDto> searchOrders(@RequestParam String q,
+                                                     @RequestParam(required = false) String after,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        int afterOrderid = OrderCursor.decode(after);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<OrderDto> orders = service.searchOrders(q, afterOrderid, pageSize);
+        if (orders == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        OrderPageDto page = new OrderPageDto();
+        page.orders = orders;
+        if (orders.size() == pageSize) {
+            page.next = OrderCursor.encode(orders.get(pageSize - 1).orderid);
+        }
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format) {
+        OrderExportFormat exportFormat = OrderExportFormat.of(format);
+        StreamingResponseBody body = out -> service.exportOrders(exportFormat.open(out, exportWriters.get(exportFormat)));
+        return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
+    }
+
+    // a matching If-None-Match is answered from the version alone, the order is not loaded
     @GetMapping("/{id}")
-    public ResponseEntity<OrderDto> retrieveOrder(@PathVariable int id) {
+    public ResponseEntity<OrderDto> retrieveOrder(@PathVariable int id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Integer version = service.getOrderVersion(id);
+            if (version != null && OrderETag.matches(ifNoneMatch, OrderETag.order(version))) {
+                return notModified(OrderETag.order(version));
+            }
+        }
         OrderDto odto = service.getOrder(id);
-        return new ResponseEntity<>(odto, HttpStatus.OK);
+        Integer version = odto == null ? null : service.getOrderVersion(id);
+        if (version == null) {
+            return new ResponseEntity<>(odto, HttpStatus.OK);
+        }
+        return ResponseEntity.ok()
+                .eTag(OrderETag.order(version))
+                .cacheControl(OrderETag.CACHE_CONTROL)
+                .body(odto);
     }
 
     @GetMapping("/{id}/invoice")
-    public ResponseEntity<InvoiceDto> getAmount(@PathVariable int id) {
+    public ResponseEntity<InvoiceDto> getAmount(@PathVariable int id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Integer version = service.getOrderVersion(id);
+            if (version != null && OrderETag.matches(ifNoneMatch, OrderETag.invoice(version))) {
+                return notModified(OrderETag.invoice(version));
+            }
+        }
         InvoiceDto invoiceDto = new InvoiceDto();
         invoiceDto.orderid = id;
         invoiceDto.amount = service.getAmount(id);
-        return new ResponseEntity<>(invoiceDto, HttpStatus.OK);
+        Integer version = service.getOrderVersion(id);
+        if (version == null) {
+            return new ResponseEntity<>(invoiceDto, HttpStatus.OK);
+        }
+        return ResponseEntity.ok()
+                .eTag(OrderETag.invoice(version))
+                .cacheControl(OrderETag.CACHE_CONTROL)
+                .body(invoiceDto);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(OrderETag.CACHE_CONTROL)
+                .build();
     }
 }
@@ -0,0 +1,41 @@
+package com.example.les18.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for order listings. A plain order id is accepted as well.
+ */
+final class OrderCursor {
+
+    private static final String PREFIX = "o:";
+
+    private OrderCursor() { }
+
+    static String encode(int orderid) {
+        byte[] raw = (PREFIX + orderid).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            if (cursor.chars().allMatch(Character::isDigit)) {
+                return Integer.parseInt(cursor);
+            }
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (raw.startsWith(PREFIX)) {
+                return Integer.parseInt(raw.substring(PREFIX.length()));
+            }
+        }
+        catch (IllegalArgumentException ex) {
+            // falls through to the bad request below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor " + cursor);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.les18.controller;
+
+import org.springframework.http.CacheControl;
+
+/**
+ * Strong entity tags for order representations, derived from the order's version. The prefix
+ * keeps the tags of an order and of its invoice apart.
+ */
+final class OrderETag {
+
+    // clients may store the response but must revalidate it on every use
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private OrderETag() { }
+
+    static String order(int version) {
+        return "\"o" + version + "\"";
+    }
+
+    static String invoice(int version) {
+        return "\"i" + version + "\"";
+    }
+
+    /**
+     * If-None-Match uses weak comparison, so a W/ prefix is ignored.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
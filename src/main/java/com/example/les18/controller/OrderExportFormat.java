@@ -0,0 +1,115 @@
+package com.example.les18.controller;
+
+import com.example.les18.dto.OrderDto;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+public enum OrderExportFormat {
+
+    NDJSON(MediaType.APPLICATION_NDJSON) {
+        @Override
+        void writeHeader(OutputStream out) {
+        }
+
+        @Override
+        void writeRow(OrderDto odto, OutputStream out, ObjectWriter writer) throws IOException {
+            out.write(writer.writeValueAsBytes(odto));
+            out.write('\n');
+        }
+    },
+
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8)) {
+        @Override
+        void writeHeader(OutputStream out) throws IOException {
+            out.write("orderid,productname,unitprice,quantity\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void writeRow(OrderDto odto, OutputStream out, ObjectWriter writer) throws IOException {
+            String row = odto.orderid + "," + quote(odto.productname) + "," + odto.unitprice + "," + odto.quantity + "\n";
+            out.write(row.getBytes(StandardCharsets.UTF_8));
+        }
+    },
+
+    // CBOR items are self-delimiting, so concatenated orders form a CBOR sequence (RFC 8742)
+    CBOR(new MediaType("application", "cbor-seq")) {
+        @Override
+        void writeHeader(OutputStream out) {
+        }
+
+        @Override
+        void writeRow(OrderDto odto, OutputStream out, ObjectWriter writer) throws IOException {
+            out.write(writer.writeValueAsBytes(odto));
+        }
+    },
+
+    // every order is a complete Smile document; Smile allows the header to repeat between root values
+    SMILE(new MediaType("application", "x-jackson-smile")) {
+        @Override
+        void writeHeader(OutputStream out) {
+        }
+
+        @Override
+        void writeRow(OrderDto odto, OutputStream out, ObjectWriter writer) throws IOException {
+            out.write(writer.writeValueAsBytes(odto));
+        }
+    };
+
+    private final MediaType mediaType;
+
+    OrderExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public static OrderExportFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format " + name);
+        }
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns a row writer for this format; the header, if any, is written right away. The
+     * object writer must produce this format's encoding (JSON for NDJSON, unused for CSV).
+     */
+    public Consumer<OrderDto> open(OutputStream out, ObjectWriter writer) throws IOException {
+        writeHeader(out);
+        return odto -> {
+            try {
+                writeRow(odto, out, writer);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+    }
+
+    abstract void writeHeader(OutputStream out) throws IOException;
+
+    abstract void writeRow(OrderDto odto, OutputStream out, ObjectWriter writer) throws IOException;
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
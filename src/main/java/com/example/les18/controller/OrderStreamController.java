@@ -0,0 +1,24 @@
+package com.example.les18.controller;
+
+import com.example.les18.service.OrderStream;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class OrderStreamController {
+
+    private final OrderStream stream;
+
+    public OrderStreamController(OrderStream stream) {
+        this.stream = stream;
+    }
+
+    // event ids are <epoch>-<seq> of the stream's publish sequence, EventSource clients send the last one back when they reconnect
+    @GetMapping(value = "/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrders(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return stream.subscribe(lastEventId);
+    }
+}
@@ -1,25 +1,40 @@
 package com.example.les18.controller;
 
+import com.example.les18.datasource.ReadYourWrites;
 import com.example.les18.dto.RoleDto;
 import com.example.les18.model.Role;
 import com.example.les18.repository.RoleRepository;
+import com.example.les18.security.CachedUserDetailsService;
+import com.example.les18.security.RoleRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "false", matchIfMissing = true)
 public class RoleController {
 
     private final RoleRepository repos;
+    private final CachedUserDetailsService userCache;
+    private final RoleRegistry roleRegistry;
+    private final ReadYourWrites readYourWrites;
 
-    public RoleController(RoleRepository repos) {
+    public RoleController(RoleRepository repos, CachedUserDetailsService userCache, RoleRegistry roleRegistry,
+                          ReadYourWrites readYourWrites) {
         this.repos = repos;
+        this.userCache = userCache;
+        this.roleRegistry = roleRegistry;
+        this.readYourWrites = readYourWrites;
     }
     @PostMapping("/roles")
     public String createRole(@RequestBody RoleDto role) {
         Role newRole = new Role();
         newRole.setRolename(role.rolename);
         repos.save(newRole);
+        roleRegistry.refresh();
+        userCache.evictAll();
+        readYourWrites.markWritten();
 
         return "Done";
     }
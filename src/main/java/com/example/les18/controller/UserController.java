@@ -1,30 +1,52 @@
 package com.example.les18.controller;
 
-import com.example.les18.repository.RoleRepository;
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.dto.UserBatchResultDto;
 import com.example.les18.dto.UserDto;
 import com.example.les18.model.Role;
 import com.example.les18.model.User;
 import com.example.les18.repository.UserRepository;
+import com.example.les18.security.CachedUserDetailsService;
+import com.example.les18.security.RoleRegistry;
+import com.example.les18.security.TokenVersions;
+import com.example.les18.service.UserBatchWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
+@ConditionalOnProperty(name = "app.async.enabled", havingValue = "false", matchIfMissing = true)
 public class UserController {
 
     private final UserRepository userRepos;
-    private final RoleRepository roleRepos;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder encoder;
+    private final CachedUserDetailsService userCache;
+    private final TokenVersions tokenVersions;
+    private final UserBatchWriter batchWriter;
+    private final EntityManager entityManager;
+    private final ReadYourWrites readYourWrites;
 
-    public UserController(UserRepository userRepos, RoleRepository roleRepos, PasswordEncoder encoder) {
+    public UserController(UserRepository userRepos, RoleRegistry roleRegistry, PasswordEncoder encoder,
+                          CachedUserDetailsService userCache, TokenVersions tokenVersions,
+                          UserBatchWriter batchWriter, EntityManager entityManager, ReadYourWrites readYourWrites) {
         this.userRepos = userRepos;
-        this.roleRepos = roleRepos;
+        this.roleRegistry = roleRegistry;
         this.encoder = encoder;
+        this.userCache = userCache;
+        this.tokenVersions = tokenVersions;
+        this.batchWriter = batchWriter;
+        this.entityManager = entityManager;
+        this.readYourWrites = readYourWrites;
     }
     @PostMapping("/users")
     public String createUser(@RequestBody UserDto userDto) {
@@ -34,14 +56,37 @@ public class UserController {
 
         List<Role> userRoles = new ArrayList<>();
         for (String rolename : userDto.roles) {
-            Optional<Role> or = roleRepos.findById(rolename);
-
-            userRoles.add(or.get());
+            if (!roleRegistry.exists(rolename)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown role " + rolename);
+            }
+            userRoles.add(entityManager.getReference(Role.class, rolename));
         }
         newUser.setRoles(userRoles);
 
         userRepos.save(newUser);
+        userCache.evict(newUser.getUsername());
+        // saving over an existing user may change its roles, retire its stateless tokens
+        tokenVersions.bump(newUser.getUsername());
+        // the new user signs in next, and the writer may read the account back
+        readYourWrites.markWritten(newUser.getUsername());
+        readYourWrites.markWritten();
+
+        return "Done";
+    }
+
+    @PostMapping("/users/batch")
+    public UserBatchResultDto createUsers(@RequestBody List<UserDto> userDtos) {
+        UserBatchResultDto result = batchWriter.write(userDtos);
+        readYourWrites.markWritten();
+        return result;
+    }
 
+    // forced logout, every token issued to the user so far stops working in stateless mode
+    @PostMapping("/users/{username}/logout")
+    public String logoutUser(@PathVariable String username) {
+        tokenVersions.bump(username);
+        userCache.evict(username);
+        readYourWrites.markWritten(username);
         return "Done";
     }
 }
@@ -0,0 +1,30 @@
+package com.example.les18.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary alternatives to JSON for request and response bodies, picked by Content-Type and
+ * Accept: application/cbor and application/x-jackson-smile. Both share the configuration
+ * of the application's JSON ObjectMapper.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper mapper) {
+        return new MappingJackson2CborHttpMessageConverter(mapper.copyWith(new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper mapper) {
+        return new MappingJackson2SmileHttpMessageConverter(mapper.copyWith(new SmileFactory()));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.les18.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections
+ * everywhere else. The decision is made when the connection is fetched, so this data source
+ * has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * for the read-only flag of the transaction to be known by then.
+ * <p>
+ * A replica that fails to hand out a connection is taken out of rotation and its read goes to
+ * the primary instead; the health check puts it back once it answers again. Users that wrote
+ * within the sticky window of {@link ReadYourWrites} read from the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        int activeConnections() {
+            if (dataSource instanceof HikariDataSource hikari) {
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                return pool == null ? 0 : pool.getActiveConnections();
+            }
+            return 0;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReplicaSelection selection;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthCheck;
+
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final LongAdder fallbackRoutes = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaSelection selection,
+                                      ReadYourWrites readYourWrites, Duration healthInterval) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.selection = selection;
+        this.readYourWrites = readYourWrites;
+        if (healthInterval.isZero()) {
+            this.healthCheck = null;
+        }
+        else {
+            this.healthCheck = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-health-"));
+            this.healthCheck.scheduleWithFixedDelay(this::checkReplicas,
+                    healthInterval.toMillis(), healthInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || readYourWrites.isPinned()) {
+            primaryRoutes.increment();
+            return primary.getConnection();
+        }
+        Replica replica = select();
+        if (replica != null) {
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaRoutes.increment();
+                return connection;
+            }
+            catch (SQLException ex) {
+                log.warn("Taking {} out of rotation: {}", replica.name, ex.getMessage());
+                replica.healthy = false;
+            }
+        }
+        fallbackRoutes.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // explicit credentials are only used for administration, which belongs on the primary
+        primaryRoutes.increment();
+        return primary.getConnection(username, password);
+    }
+
+    private Replica select() {
+        if (selection == ReplicaSelection.LEAST_CONNECTIONS) {
+            Replica best = null;
+            int bestActive = Integer.MAX_VALUE;
+            for (Replica replica : replicas) {
+                if (replica.healthy) {
+                    int active = replica.activeConnections();
+                    if (active < bestActive) {
+                        best = replica;
+                        bestActive = active;
+                    }
+                }
+            }
+            return best;
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(1);
+            }
+            catch (SQLException ex) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("{} is {}", replica.name, healthy ? "back in rotation" : "out of rotation");
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("datasource.routing", primaryRoutes, LongAdder::sum)
+                .tag("target", "primary").register(registry);
+        FunctionCounter.builder("datasource.routing", replicaRoutes, LongAdder::sum)
+                .tag("target", "replica").register(registry);
+        FunctionCounter.builder("datasource.routing", fallbackRoutes, LongAdder::sum)
+                .tag("target", "fallback").register(registry);
+        for (Replica replica : replicas) {
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", replica.name).register(registry);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.les18.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Remembers which users wrote recently. For the sticky window after a write the reads of that
+ * user go to the primary, so they see their own writes even when the replicas lag behind.
+ * Writes to a user account pin that account too, and reads done on behalf of a user who is not
+ * logged in yet (signing in) can be pinned with {@link #readFor}.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWriters;
+    private final ThreadLocal<String> subject = new ThreadLocal<>();
+
+    public ReadYourWrites(@Value("${app.datasource.replicas.enabled:false}") boolean enabled,
+                          @Value("${app.datasource.replicas.sticky-window:5s}") Duration stickyWindow) {
+        this.enabled = enabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(stickyWindow)
+                .build();
+    }
+
+    public void markWritten() {
+        markWritten(currentUsername());
+    }
+
+    public void markWritten(String username) {
+        if (enabled && username != null) {
+            recentWriters.put(username, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Runs the reads as if the given user were logged in, so they go to the primary when that
+     * user was written recently.
+     */
+    public <T> T readFor(String username, Supplier<T> reads) {
+        if (!enabled) {
+            return reads.get();
+        }
+        String previous = subject.get();
+        subject.set(username);
+        try {
+            return reads.get();
+        }
+        finally {
+            if (previous == null) {
+                subject.remove();
+            }
+            else {
+                subject.set(previous);
+            }
+        }
+    }
+
+    public boolean isPinned() {
+        return enabled && (isRecent(currentUsername()) || isRecent(subject.get()));
+    }
+
+    private boolean isRecent(String username) {
+        return username != null && recentWriters.getIfPresent(username) != null;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken
+                ? null : authentication.getName();
+    }
+}
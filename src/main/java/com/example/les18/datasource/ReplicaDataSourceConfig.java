@@ -0,0 +1,58 @@
+package com.example.les18.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured data source when {@code app.datasource.replicas.enabled} is set.
+ * The primary is built from the usual {@code spring.datasource.*} properties, every url in
+ * {@code app.datasource.replicas.urls} gets a pool of its own.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties properties, ReadYourWrites readYourWrites,
+                                                        Environment env) {
+        String prefix = "app.datasource.replicas.";
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        String[] urls = env.getProperty(prefix + "urls", String[].class, new String[0]);
+        int poolSize = env.getProperty(prefix + "pool-size", Integer.class, 10);
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(urls[i].trim());
+            replica.setUsername(env.getProperty(prefix + "username", properties.determineUsername()));
+            replica.setPassword(env.getProperty(prefix + "password", properties.determinePassword()));
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas,
+                env.getProperty(prefix + "selection", ReplicaSelection.class, ReplicaSelection.ROUND_ROBIN),
+                readYourWrites,
+                env.getProperty(prefix + "health-interval", Duration.class, Duration.ofSeconds(5)));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.les18.datasource;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Turns off {@code spring.jpa.open-in-view} when {@code app.datasource.replicas.enabled} is set.
+ * Routing is decided per transaction, a persistence context that spans the whole request would
+ * keep the connection of the first transaction for all later ones. Added as a default, so an
+ * explicit setting still wins; without replicas the Spring Boot default is left alone.
+ */
+public class ReplicaEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (environment.getProperty("app.datasource.replicas.enabled", Boolean.class, false)) {
+            environment.getPropertySources().addLast(
+                    new MapPropertySource("replicaDefaults", Map.of("spring.jpa.open-in-view", "false")));
+        }
+    }
+}
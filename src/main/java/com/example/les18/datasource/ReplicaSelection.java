@@ -0,0 +1,5 @@
+package com.example.les18.datasource;
+
+public enum ReplicaSelection {
+    ROUND_ROBIN, LEAST_CONNECTIONS
+}
@@ -3,4 +3,12 @@ package com.example.les18.dto;
 public class InvoiceDto {
     public int orderid;
     public double amount;
+
+    public InvoiceDto() { }
+
+    // used by the JPQL constructor projections in OrderRepository
+    public InvoiceDto(int orderid, double amount) {
+        this.orderid = orderid;
+        this.amount = amount;
+    }
 }
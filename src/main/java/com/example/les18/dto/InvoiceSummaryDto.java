@@ -0,0 +1,10 @@
+package com.example.les18.dto;
+
+import java.util.List;
+
+public class InvoiceSummaryDto {
+    public double revenue;
+    public long quantity;
+    public long orders;
+    public List<ProductRevenueDto> products;
+}
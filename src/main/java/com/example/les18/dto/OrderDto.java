@@ -9,4 +9,14 @@ public class OrderDto {
     public double unitprice;
 
     public int quantity;
+
+    public OrderDto() { }
+
+    // used by the JPQL constructor projections in OrderRepository
+    public OrderDto(int orderid, String productname, double unitprice, int quantity) {
+        this.orderid = orderid;
+        this.productname = productname;
+        this.unitprice = unitprice;
+        this.quantity = quantity;
+    }
 }
@@ -0,0 +1,10 @@
+package com.example.les18.dto;
+
+import java.util.List;
+
+public class OrderPageDto {
+    public List<OrderDto> orders;
+
+    // opaque cursor for the next page, null on the last page
+    public String next;
+}
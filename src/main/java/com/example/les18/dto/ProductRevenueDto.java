@@ -0,0 +1,8 @@
+package com.example.les18.dto;
+
+public class ProductRevenueDto {
+    public String productname;
+    public double revenue;
+    public long quantity;
+    public long orders;
+}
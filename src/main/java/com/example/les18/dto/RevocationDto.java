@@ -0,0 +1,8 @@
+package com.example.les18.dto;
+
+public class RevocationDto {
+    public String jti;
+
+    // epoch millis, defaults to the longest possible token lifetime
+    public Long expiresAt;
+}
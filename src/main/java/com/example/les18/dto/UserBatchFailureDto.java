@@ -0,0 +1,19 @@
+package com.example.les18.dto;
+
+public class UserBatchFailureDto {
+    // position in the submitted list
+    public int index;
+
+    public String username;
+
+    public String error;
+
+    public UserBatchFailureDto() {
+    }
+
+    public UserBatchFailureDto(int index, String username, String error) {
+        this.index = index;
+        this.username = username;
+        this.error = error;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.les18.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserBatchResultDto {
+    public int created;
+
+    public List<UserBatchFailureDto> failures = new ArrayList<>();
+}
@@ -0,0 +1,13 @@
+package com.example.les18.journal;
+
+/**
+ * When appended journal records are forced to disk.
+ */
+public enum FsyncPolicy {
+    /** Every append is forced before its id is returned. */
+    ALWAYS,
+    /** Appends are forced by a background task every {@code fsync-interval}. */
+    INTERVAL,
+    /** Left to the operating system; only segment rolls and shutdown force. */
+    NONE
+}
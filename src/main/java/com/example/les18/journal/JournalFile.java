@@ -0,0 +1,238 @@
+package com.example.les18.journal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of checksummed records in memory-mapped segment files, plus a checkpoint
+ * file with the position up to which records have been consumed.
+ * <p>
+ * Segments are named {@code segment-<n>.log} and preallocated to the segment size, so unused
+ * space reads as zeros. A record is {@code [int length][int crc32c][payload]}; a zero length or
+ * a checksum mismatch ends a segment. After a restart the writer always starts a new segment,
+ * which keeps a torn tail record of the previous run from ever being overwritten.
+ * <p>
+ * Positions are {@code segment << 32 | offset}, so they order like the records. One thread
+ * appends at a time; reading and checkpointing are meant for a single consumer thread.
+ */
+final class JournalFile implements AutoCloseable {
+
+    record Batch(List<byte[]> records, long end) {
+    }
+
+    static final int HEADER_SIZE = 8;
+
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final FsyncPolicy fsync;
+
+    // writer state, guarded by this
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private int writeOffset;
+    private boolean unforced;
+
+    // end of the last complete record
+    private volatile long writePosition;
+
+    // consumer state
+    private long readSegment = -1;
+    private ByteBuffer readBuffer;
+
+    JournalFile(Path dir, int segmentSize, FsyncPolicy fsync) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        List<Long> segments = segments();
+        openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1);
+    }
+
+    static long position(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+
+    static long segment(long position) {
+        return position >>> 32;
+    }
+
+    static int offset(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Appends the record and returns the position after it.
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + size + " bytes exceeds the segment size");
+        }
+        if (writeOffset + size > segmentSize) {
+            writeBuffer.force();
+            openSegment(writeSegment + 1);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        writeBuffer.put(writeOffset + HEADER_SIZE, payload);
+        writeBuffer.putInt(writeOffset + 4, (int) crc.getValue());
+        writeBuffer.putInt(writeOffset, payload.length);
+        if (fsync == FsyncPolicy.ALWAYS) {
+            writeBuffer.force(writeOffset, size);
+        }
+        else {
+            unforced = true;
+        }
+        writeOffset += size;
+        writePosition = position(writeSegment, writeOffset);
+        return writePosition;
+    }
+
+    /**
+     * Forces appended records to disk. Appends may continue while this runs.
+     */
+    void force() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (!unforced) {
+                return;
+            }
+            unforced = false;
+            buffer = writeBuffer;
+        }
+        buffer.force();
+    }
+
+    long writePosition() {
+        return writePosition;
+    }
+
+    long readCheckpoint() throws IOException {
+        Path checkpoint = dir.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            return ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong();
+        }
+        List<Long> segments = segments();
+        return position(segments.get(0), 0);
+    }
+
+    /**
+     * Reads up to {@code max} records from {@code from}, never past the write position.
+     */
+    Batch read(long from, int max) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long pos = from;
+        while (records.size() < max) {
+            long limit = writePosition;
+            if (pos >= limit) {
+                break;
+            }
+            long segment = segment(pos);
+            int offset = offset(pos);
+            boolean current = segment == segment(limit);
+            byte[] record = readRecord(mapForRead(segment), offset, current ? offset(limit) : segmentSize);
+            if (record == null) {
+                if (current) {
+                    break;
+                }
+                pos = position(segment + 1, 0);
+                continue;
+            }
+            records.add(record);
+            pos = position(segment, offset + HEADER_SIZE + record.length);
+        }
+        return new Batch(records, pos);
+    }
+
+    /**
+     * Records that everything before {@code position} has been consumed and deletes the
+     * segments that lie completely before it.
+     */
+    void checkpoint(long position) throws IOException {
+        Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (long segment : segments()) {
+            if (segment < segment(position)) {
+                try {
+                    Files.deleteIfExists(segmentFile(segment));
+                }
+                catch (IOException ex) {
+                    // still mapped on some platforms, the next checkpoint tries again
+                }
+            }
+        }
+    }
+
+    private byte[] readRecord(ByteBuffer buffer, int offset, int end) {
+        if (offset + HEADER_SIZE > end) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > end) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        buffer.get(offset + HEADER_SIZE, record);
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? record : null;
+    }
+
+    // a second mapping of the same file shares the page cache with the writer's mapping
+    private ByteBuffer mapForRead(long segment) throws IOException {
+        if (segment != readSegment) {
+            try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.READ)) {
+                readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            }
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private void openSegment(long segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(segment).toFile(), "rw")) {
+            file.setLength(segmentSize);
+            writeBuffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        writeSegment = segment;
+        writeOffset = 0;
+        writePosition = position(segment, 0);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentFile(long segment) {
+        return dir.resolve(String.format("segment-%020d.log", segment));
+    }
+
+    @Override
+    public synchronized void close() {
+        writeBuffer.force();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.les18.journal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands out order ids from blocks of the orders sequence, interpreted the way Hibernate's
+ * pooled optimizer does: a sequence value v covers {@code (v - blockSize, v]}, except the
+ * sequence's initial value, which covers only itself. Ids taken here therefore do not collide
+ * with ids Hibernate assigns, as long as both use the same initial value and block size. A few
+ * blocks are fetched ahead on a background thread so that {@link #next} normally does not
+ * touch the database.
+ */
+public final class OrderIdAllocator implements AutoCloseable {
+
+    private final JdbcTemplate jdbc;
+    private final String nextValueSql;
+    private final long initialValue;
+    private final int blockSize;
+    private final int prefetchBlocks;
+
+    private final BlockingQueue<long[]> blocks = new LinkedBlockingQueue<>();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final ExecutorService prefetcher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("order-id-prefetch-"));
+
+    // guarded by this
+    private long next = 1;
+    private long last = 0;
+
+    public OrderIdAllocator(JdbcTemplate jdbc, String nextValueSql, long initialValue, int blockSize, int prefetchBlocks) {
+        this.jdbc = jdbc;
+        this.nextValueSql = nextValueSql;
+        this.initialValue = initialValue;
+        this.blockSize = blockSize;
+        this.prefetchBlocks = prefetchBlocks;
+    }
+
+    public synchronized int next() {
+        if (next > last) {
+            long[] block = blocks.poll();
+            if (block == null) {
+                block = fetch();
+            }
+            next = block[0];
+            last = block[1];
+            refill();
+        }
+        return Math.toIntExact(next++);
+    }
+
+    private void refill() {
+        if (blocks.size() < prefetchBlocks && refilling.compareAndSet(false, true)) {
+            prefetcher.execute(() -> {
+                try {
+                    while (blocks.size() < prefetchBlocks) {
+                        blocks.add(fetch());
+                    }
+                }
+                finally {
+                    refilling.set(false);
+                }
+            });
+        }
+    }
+
+    private long[] fetch() {
+        long hi = jdbc.queryForObject(nextValueSql, Long.class);
+        // Hibernate hands out the initial value on its own and starts the next block above it
+        if (hi == initialValue) {
+            return new long[] {hi, hi};
+        }
+        return new long[] {hi - blockSize + 1, hi};
+    }
+
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.les18.journal;
+
+import com.example.les18.dto.OrderDto;
+import com.example.les18.metrics.HotPathMetrics;
+import com.example.les18.model.Order;
+import com.example.les18.service.OrdersCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind path for single orders, enabled with {@code app.orders.journal.enabled}.
+ * {@link #append} gives the order a pre-allocated id, appends it to a local {@link JournalFile}
+ * and returns without a database round trip. A background task drains the journal into the
+ * orders table in JDBC batches, publishes {@link OrdersCreatedEvent} in the same transaction
+ * and then moves the checkpoint. Whatever was not drained before a stop is drained after the
+ * next start; rows that already made it into the table are skipped, so replay is idempotent.
+ * With the journal disabled nothing is created and {@link #isEnabled} is false.
+ */
+@Component
+public class OrderJournal implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+
+    private static final String INSERT_SQL =
+            "insert into orders (orderid, productname, unitprice, quantity, version) values (?, ?, ?, ?, 0)";
+    private static final String EXISTING_SQL =
+            "select orderid from orders where orderid in (:ids)";
+
+    private final boolean enabled;
+    private JournalFile file;
+    private OrderIdAllocator ids;
+    private JdbcTemplate jdbc;
+    private NamedParameterJdbcTemplate namedJdbc;
+    private TransactionTemplate transactionTemplate;
+    private ApplicationEventPublisher events;
+    private ScheduledExecutorService scheduler;
+    private int batchSize;
+    private Duration drainInterval;
+    private Duration fsyncInterval;
+    private FsyncPolicy fsync;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private Timer flushTimer;
+    private Timer fsyncTimer;
+    private Counter flushFailures;
+
+    // drain thread only: everything before this position is in the database
+    private long committed;
+
+    public OrderJournal(Environment env, JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                        EntityManagerFactory entityManagerFactory, ApplicationEventPublisher events,
+                        HotPathMetrics metrics) {
+        this.enabled = env.getProperty("app.orders.journal.enabled", Boolean.class, false);
+        if (!enabled) {
+            return;
+        }
+        String prefix = "app.orders.journal.";
+        Path dir = Path.of(env.getProperty(prefix + "dir", "data/order-journal"));
+        DataSize segmentSize = env.getProperty(prefix + "segment-size", DataSize.class, DataSize.ofMegabytes(64));
+        this.fsync = env.getProperty(prefix + "fsync", FsyncPolicy.class, FsyncPolicy.INTERVAL);
+        this.fsyncInterval = env.getProperty(prefix + "fsync-interval", Duration.class, Duration.ofMillis(10));
+        this.batchSize = env.getProperty(prefix + "batch-size", Integer.class, 1000);
+        this.drainInterval = env.getProperty(prefix + "drain-interval", Duration.class, Duration.ofMillis(50));
+
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.events = events;
+        String nextValueSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString("orders_seq");
+        this.ids = new OrderIdAllocator(jdbc, nextValueSql, Order.ID_INITIAL_VALUE, Order.ID_ALLOCATION_SIZE,
+                env.getProperty(prefix + "prefetch-blocks", Integer.class, 4));
+        this.flushTimer = metrics.timer("orders.journal.flush");
+        this.fsyncTimer = metrics.timer("orders.journal.fsync");
+        this.flushFailures = metrics.counter("orders.journal.flush.failures");
+        try {
+            this.file = new JournalFile(dir, Math.toIntExact(segmentSize.toBytes()), fsync);
+            this.committed = file.readCheckpoint();
+            long pending = countPending();
+            appended.set(pending);
+            if (pending > 0) {
+                log.info("Order journal has {} entries to replay from {}", pending, dir);
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open order journal " + dir, ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assigns the order its id and journals it. The order reaches the orders table within
+     * about a drain interval.
+     */
+    public int append(Order o) {
+        int orderid = ids.next();
+        o.setOrderid(orderid);
+        try {
+            file.append(encode(o));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to the order journal", ex);
+        }
+        appended.incrementAndGet();
+        return orderid;
+    }
+
+    // draining starts once the application, including the invoice listeners, is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = new ScheduledThreadPoolExecutor(2, new CustomizableThreadFactory("order-journal-"));
+        scheduler.scheduleWithFixedDelay(this::drain, 0, drainInterval.toMillis(), TimeUnit.MILLISECONDS);
+        if (fsync == FsyncPolicy.INTERVAL) {
+            scheduler.scheduleWithFixedDelay(() -> HotPathMetrics.record(fsyncTimer, () -> {
+                file.force();
+                return null;
+            }), fsyncInterval.toMillis(), fsyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                JournalFile.Batch batch = file.read(committed, batchSize);
+                if (batch.records().isEmpty()) {
+                    committed = batch.end();
+                    return;
+                }
+                List<OrderDto> orders = new ArrayList<>(batch.records().size());
+                for (byte[] record : batch.records()) {
+                    orders.add(decode(record));
+                }
+                HotPathMetrics.record(flushTimer, () -> {
+                    insert(orders);
+                    return null;
+                });
+                file.checkpoint(batch.end());
+                committed = batch.end();
+                drained.addAndGet(orders.size());
+            }
+        }
+        catch (IOException | RuntimeException ex) {
+            HotPathMetrics.increment(flushFailures);
+            log.warn("Draining the order journal failed, retrying in {}", drainInterval, ex);
+        }
+    }
+
+    private void insert(List<OrderDto> orders) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Integer> orderids = new ArrayList<>(orders.size());
+            for (OrderDto o : orders) {
+                orderids.add(o.orderid);
+            }
+            // rows of a batch whose checkpoint was lost in a crash are already there
+            Set<Integer> existing = new HashSet<>(namedJdbc.queryForList(EXISTING_SQL, Map.of("ids", orderids), Integer.class));
+            List<OrderDto> fresh = new ArrayList<>(orders.size());
+            for (OrderDto o : orders) {
+                if (!existing.contains(o.orderid)) {
+                    fresh.add(o);
+                }
+            }
+            if (fresh.isEmpty()) {
+                return;
+            }
+            jdbc.batchUpdate(INSERT_SQL, fresh, fresh.size(), (ps, o) -> {
+                ps.setInt(1, o.orderid);
+                ps.setString(2, o.productname);
+                ps.setDouble(3, o.unitprice);
+                ps.setInt(4, o.quantity);
+            });
+            events.publishEvent(new OrdersCreatedEvent(fresh));
+        });
+    }
+
+    private long countPending() throws IOException {
+        long count = 0;
+        long pos = committed;
+        while (true) {
+            JournalFile.Batch batch = file.read(pos, 10_000);
+            if (batch.records().isEmpty()) {
+                return count;
+            }
+            count += batch.records().size();
+            pos = batch.end();
+        }
+    }
+
+    private static byte[] encode(Order o) {
+        byte[] name = o.getProductname() == null ? null : o.getProductname().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Double.BYTES + Integer.BYTES + Integer.BYTES
+                + (name == null ? 0 : name.length));
+        buffer.putInt(o.getOrderid())
+                .putDouble(o.getUnitprice())
+                .putInt(o.getQuantity())
+                .putInt(name == null ? -1 : name.length);
+        if (name != null) {
+            buffer.put(name);
+        }
+        return buffer.array();
+    }
+
+    private static OrderDto decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int orderid = buffer.getInt();
+        double unitprice = buffer.getDouble();
+        int quantity = buffer.getInt();
+        int nameLength = buffer.getInt();
+        String productname = null;
+        if (nameLength >= 0) {
+            productname = new String(record, buffer.position(), nameLength, StandardCharsets.UTF_8);
+        }
+        return new OrderDto(orderid, productname, unitprice, quantity);
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("orders.journal.lag", this, journal -> journal.appended.get() - journal.drained.get())
+                .description("journaled orders not yet in the database")
+                .register(registry);
+        FunctionCounter.builder("orders.journal.appended", appended, AtomicLong::get)
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+            if (scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                drain();
+            }
+        }
+        ids.close();
+        file.close();
+    }
+}
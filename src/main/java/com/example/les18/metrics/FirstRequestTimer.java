@@ -0,0 +1,45 @@
+package com.example.les18.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs and records the time from JVM start until the first request has been handled, which is
+ * what a new instance costs when scaling out. Boot's application.ready.time stops short of that.
+ */
+@Component
+public class FirstRequestTimer implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(FirstRequestTimer.class);
+
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestMillis.get() < 0) {
+            long sinceStart = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (firstRequestMillis.compareAndSet(-1, sinceStart)) {
+                log.info("First request ({}) handled {} ms after JVM start", event.getRequestUrl(), sinceStart);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        TimeGauge.builder("application.first-request.time", firstRequestMillis, TimeUnit.MILLISECONDS,
+                        millis -> millis.get() < 0 ? Double.NaN : millis.get())
+                .description("Time from JVM start until the first request was handled")
+                .register(registry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.les18.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands out the timers and counters of the request hot path. Meters are created once, up front,
+ * by their users. When {@code app.metrics.hot-path.enabled} is false every meter is null and
+ * {@link #record} and {@link #increment} reduce to a null check.
+ */
+@Component
+public class HotPathMetrics {
+
+    private final MeterRegistry registry;
+
+    public HotPathMetrics(ObjectProvider<MeterRegistry> registry,
+                          @Value("${app.metrics.hot-path.enabled:true}") boolean enabled) {
+        this.registry = enabled ? registry.getIfAvailable() : null;
+    }
+
+    public Timer timer(String name, String... tags) {
+        if (registry == null) {
+            return null;
+        }
+        return Timer.builder(name).tags(tags).register(registry);
+    }
+
+    public Counter counter(String name, String... tags) {
+        if (registry == null) {
+            return null;
+        }
+        return Counter.builder(name).tags(tags).register(registry);
+    }
+
+    public static <T> T record(Timer timer, Supplier<T> task) {
+        if (timer == null) {
+            return task.get();
+        }
+        return timer.record(task);
+    }
+
+    public static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
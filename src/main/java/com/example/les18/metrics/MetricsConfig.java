@@ -0,0 +1,18 @@
+package com.example.les18.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // makes @Timed on service methods effective; without it the annotations cost nothing
+    @Bean
+    @ConditionalOnProperty(name = "app.metrics.hot-path.enabled", havingValue = "true", matchIfMissing = true)
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
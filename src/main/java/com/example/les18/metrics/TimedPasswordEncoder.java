@@ -0,0 +1,35 @@
+package com.example.les18.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Times the hashing done by another encoder as auth.password{operation=encode|matches}.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, HotPathMetrics metrics) {
+        this.delegate = delegate;
+        this.encodeTimer = metrics.timer("auth.password", "operation", "encode");
+        this.matchesTimer = metrics.timer("auth.password", "operation", "matches");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return HotPathMetrics.record(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return HotPathMetrics.record(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -6,8 +6,14 @@ import jakarta.persistence.*;
 @Entity
 @Table(name="orders")
 public class Order {
+    // ids per sequence call, also used by the order journal's id blocks
+    public static final int ID_ALLOCATION_SIZE = 50;
+    // first value of orders_seq, see V1__initial_schema.sql; also tells the journal's id blocks how Hibernate reads it
+    public static final int ID_INITIAL_VALUE = 1;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", initialValue = ID_INITIAL_VALUE, allocationSize = ID_ALLOCATION_SIZE)  // pooled, keeps insert batching on
     int orderid;
 
     private String productname;
@@ -16,6 +22,10 @@ public class Order {
 
     private int quantity;
 
+    // null for rows inserted outside of JPA, read as version 0
+    @Version
+    private Integer version;
+
     public Order() { }      // default constructor required
 
     public Order(String prodname, double price, int quantity) {
@@ -55,6 +65,14 @@ public class Order {
         this.quantity = quantity;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public double calculateAmount() {
         return this.quantity * this.unitprice;
     }
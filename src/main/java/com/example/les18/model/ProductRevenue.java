@@ -0,0 +1,43 @@
+package com.example.les18.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Running revenue and quantity totals per product, kept up to date by every order insert.
+ */
+@Entity
+@Table(name = "product_revenue")
+public class ProductRevenue {
+    @Id
+    private String productname;
+
+    private double revenue;
+
+    private long quantity;
+
+    private long ordercount;
+
+    public ProductRevenue() { }
+
+    public ProductRevenue(String productname) {
+        this.productname = productname;
+    }
+
+    public String getProductname() {
+        return productname;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getOrdercount() {
+        return ordercount;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.les18.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.Collection;
 
@@ -15,6 +16,11 @@ public class User {
     @ManyToMany(fetch = FetchType.EAGER)
     private Collection<Role> roles;
 
+    // only changed through UserRepository.incrementTokenVersion, saving a user never resets it
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long tokenversion;
+
     public String getUsername() {
         return username;
     }
@@ -38,4 +44,8 @@ public class User {
     public void setRoles(Collection<Role> roles) {
         this.roles = roles;
     }
+
+    public long getTokenversion() {
+        return tokenversion;
+    }
 }
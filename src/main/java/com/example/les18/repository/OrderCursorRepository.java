@@ -0,0 +1,14 @@
+package com.example.les18.repository;
+
+import com.example.les18.model.Order;
+
+import java.util.function.Consumer;
+
+public interface OrderCursorRepository {
+
+    /**
+     * Walks all orders in id order over a server-side cursor. Each entity is detached
+     * right after the action has seen it, so memory use does not grow with the table.
+     */
+    void forEachOrder(Consumer<Order> action);
+}
@@ -0,0 +1,38 @@
+package com.example.les18.repository;
+
+import com.example.les18.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class OrderCursorRepositoryImpl implements OrderCursorRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int fetchSize;
+
+    public OrderCursorRepositoryImpl(@Value("${app.orders.export.fetch-size:500}") int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    // a transaction keeps the JDBC connection out of auto-commit, which Postgres needs for a cursor
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachOrder(Consumer<Order> action) {
+        try (Stream<Order> orders = entityManager
+                .createQuery("select o from Order o order by o.orderid", Order.class)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()) {
+            orders.forEach(o -> {
+                action.accept(o);
+                entityManager.detach(o);
+            });
+        }
+    }
+}
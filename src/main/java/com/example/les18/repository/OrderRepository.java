@@ -1,8 +1,32 @@
 package com.example.les18.repository;
 
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.OrderDto;
 import com.example.les18.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface OrderRepository extends CrudRepository<Order, Integer> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
+// query methods are read-only like the inherited finders, so they can be routed to a replica
+public interface OrderRepository extends CrudRepository<Order, Integer>, OrderCursorRepository {
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.les18.dto.OrderDto(o.orderid, o.productname, o.unitprice, o.quantity) " +
+            "from Order o where o.orderid > :after order by o.orderid")
+    List<OrderDto> findPageAfter(@Param("after") int after, Pageable page);
+
+    @Transactional(readOnly = true)
+    @Query("select coalesce(o.version, 0) from Order o where o.orderid = :orderid")
+    Optional<Integer> findVersionById(@Param("orderid") int orderid);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.les18.dto.InvoiceDto(o.orderid, o.quantity * o.unitprice) " +
+            "from Order o where o.orderid in :orderids order by o.orderid")
+    List<InvoiceDto> findInvoicesByIds(@Param("orderids") Collection<Integer> orderids);
 }
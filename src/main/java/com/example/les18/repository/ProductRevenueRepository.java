@@ -0,0 +1,29 @@
+package com.example.les18.repository;
+
+import com.example.les18.model.ProductRevenue;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ProductRevenueRepository extends CrudRepository<ProductRevenue, String> {
+
+    List<ProductRevenue> findAllByOrderByProductname();
+
+    @Modifying
+    @Transactional
+    @Query("update ProductRevenue p set p.revenue = p.revenue + :revenue, p.quantity = p.quantity + :quantity, " +
+            "p.ordercount = p.ordercount + :ordercount where p.productname = :productname")
+    int addToTotals(@Param("productname") String productname, @Param("revenue") double revenue,
+                    @Param("quantity") long quantity, @Param("ordercount") long ordercount);
+
+    @Modifying
+    @Transactional
+    @Query("insert into ProductRevenue (productname, revenue, quantity, ordercount) " +
+            "select coalesce(o.productname, ''), sum(o.quantity * o.unitprice), sum(o.quantity), count(o) " +
+            "from Order o group by coalesce(o.productname, '')")
+    int rebuildTotals();
+}
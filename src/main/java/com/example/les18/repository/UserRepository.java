@@ -1,7 +1,26 @@
 package com.example.les18.repository;
 
 import com.example.les18.model.User;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface UserRepository extends CrudRepository<User, String> {
+
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.tokenversion from User u where u.username = :username")
+    Optional<Long> findTokenVersion(@Param("username") String username);
+
+    @Modifying
+    @Transactional
+    @Query("update User u set u.tokenversion = u.tokenversion + 1 where u.username = :username")
+    int incrementTokenVersion(@Param("username") String username);
 }
@@ -0,0 +1,124 @@
+package com.example.les18.security;
+
+import com.example.les18.concurrent.AdaptiveConcurrencyLimit;
+import com.example.les18.concurrent.TokenBuckets;
+import com.example.les18.metrics.HotPathMetrics;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control behind {@link JwtRequestFilter}: an authenticated user gets a token bucket
+ * of its own, and every request counts against the global {@link AdaptiveConcurrencyLimit}.
+ * Requests over either limit are answered with 429 and Retry-After. Actuator endpoints are
+ * exempt, the order stream only takes a token since it stays open for a long time.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final TokenBuckets buckets;
+    private final AdaptiveConcurrencyLimit limit;
+    private final long retryAfterSeconds;
+
+    // admission.rejected{reason=rate|concurrency}, null when disabled
+    private final Counter rateRejections;
+    private final Counter concurrencyRejections;
+
+    public AdmissionControlFilter(TokenBuckets buckets, AdaptiveConcurrencyLimit limit, Duration retryAfter,
+                                  HotPathMetrics metrics) {
+        this.buckets = buckets;
+        this.limit = limit;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.rateRejections = metrics.counter("admission.rejected", "reason", "rate");
+        this.concurrencyRejections = metrics.counter("admission.rejected", "reason", "concurrency");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null) {
+            long wait = buckets.tryAcquire(authentication.getName());
+            if (wait > 0) {
+                HotPathMetrics.increment(rateRejections);
+                reject(response, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L)));
+                return;
+            }
+        }
+        if (request.getRequestURI().equals("/orders/stream")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limit.tryAcquire()) {
+            HotPathMetrics.increment(concurrencyRejections);
+            reject(response, retryAfterSeconds);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        }
+        finally {
+            if (!failed && request.isAsyncStarted()) {
+                // the controller returned a future: the request ends when the async dispatch completes
+                request.getAsyncContext().addListener(new Release(start, response));
+            }
+            else {
+                limit.release(System.nanoTime() - start, failed || response.getStatus() >= 500);
+            }
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain");
+        response.getWriter().write("Too many requests");
+    }
+
+    private class Release implements AsyncListener {
+        private final long start;
+        private final HttpServletResponse response;
+
+        Release(long start, HttpServletResponse response) {
+            this.start = start;
+            this.response = response;
+        }
+
+        // fires once at the end, after a timeout or error as well
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start, response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) { }
+
+        @Override
+        public void onError(AsyncEvent event) { }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) { }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.les18.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+
+/**
+ * Size- and time-bounded cache in front of another {@link UserDetailsService}. Only found
+ * users are cached; writers of users or roles must evict the affected entries.
+ */
+public class CachedUserDetailsService implements UserDetailsService, UserDetailsPasswordService, MeterBinder {
+
+    private final UserDetailsService delegate;
+
+    private final Cache<String, UserDetails> cache;
+
+    public CachedUserDetailsService(UserDetailsService delegate, long maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cache.get(username, delegate::loadUserByUsername);
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (!(delegate instanceof UserDetailsPasswordService passwordService)) {
+            return user;
+        }
+        UserDetails updated = passwordService.updatePassword(user, newPassword);
+        cache.put(updated.getUsername(), updated);
+        return updated;
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+    }
+}
@@ -1,5 +1,11 @@
 package com.example.les18.security;
 
+import com.example.les18.metrics.HotPathMetrics;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,22 +15,54 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
-@Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final UserDetailsService userDetailsService;
 
     private final JwtService jwtService;
 
-    public JwtRequestFilter(JwtService jwtService, UserDetailsService udService) {
+    // stateless mode: tokens that carry roles are authenticated from their claims alone
+    private final boolean stateless;
+    private final TokenVersions tokenVersions;
+    private final TokenRevocationStore revocations;
+    private final RoleRegistry roleRegistry;
+
+    // auth.filter{phase=parse|load-user|validate} and auth.failures{cause=...}, null when disabled
+    private final Timer parseTimer;
+    private final Timer loadUserTimer;
+    private final Timer validateTimer;
+    private final Counter expiredTokens;
+    private final Counter invalidTokens;
+    private final Counter unknownUsers;
+    private final Counter rejectedTokens;
+    private final Counter staleTokens;
+    private final Counter revokedTokens;
+
+    public JwtRequestFilter(JwtService jwtService, UserDetailsService udService, HotPathMetrics metrics,
+                            boolean stateless, TokenVersions tokenVersions, TokenRevocationStore revocations,
+                            RoleRegistry roleRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = udService;
+        this.stateless = stateless;
+        this.tokenVersions = tokenVersions;
+        this.revocations = revocations;
+        this.roleRegistry = roleRegistry;
+        this.parseTimer = metrics.timer("auth.filter", "phase", "parse");
+        this.loadUserTimer = metrics.timer("auth.filter", "phase", "load-user");
+        this.validateTimer = metrics.timer("auth.filter", "phase", "validate");
+        this.expiredTokens = metrics.counter("auth.failures", "cause", "expired-token");
+        this.invalidTokens = metrics.counter("auth.failures", "cause", "invalid-token");
+        this.unknownUsers = metrics.counter("auth.failures", "cause", "unknown-user");
+        this.rejectedTokens = metrics.counter("auth.failures", "cause", "token-mismatch");
+        this.staleTokens = metrics.counter("auth.failures", "cause", "stale-token");
+        this.revokedTokens = metrics.counter("auth.failures", "cause", "revoked-token");
     }
 
     @Override
@@ -37,17 +75,28 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         final String authorizationHeader =
                 request.getHeader("Authorization");
         String username = null;
-        String jwt = null;
+        Claims claims = null;
         if (authorizationHeader != null &&
                 authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtService.extractUsername(jwt);
+            String jwt = authorizationHeader.substring(7);
+            claims = parse(jwt);
+            if (revocations.isRevoked(claims.getId())) {
+                HotPathMetrics.increment(revokedTokens);
+            }
+            else {
+                username = claims.getSubject();
+            }
         }
         if (username != null &&
                 SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails =
-                    this.userDetailsService.loadUserByUsername(username);
-            if (jwtService.validateToken(jwt, userDetails)) {
+            if (stateless && claims.containsKey(JwtService.ROLES_CLAIM)) {
+                authenticateFromClaims(claims, request);
+                filterChain.doFilter(request, response);
+                return;
+            }
+            UserDetails userDetails = loadUser(username);
+            Claims verified = claims;
+            if (HotPathMetrics.record(validateTimer, () -> jwtService.validateToken(verified, userDetails))) {
                 UsernamePasswordAuthenticationToken
                         usernamePasswordAuthenticationToken = new
                         UsernamePasswordAuthenticationToken(
@@ -58,7 +107,50 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                         WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
             }
+            else {
+                HotPathMetrics.increment(rejectedTokens);
+            }
         }
         filterChain.doFilter(request, response);
     }
+
+    private void authenticateFromClaims(Claims claims, HttpServletRequest request) {
+        String username = claims.getSubject();
+        Number version = claims.get(JwtService.VERSION_CLAIM, Number.class);
+        if (version == null || !tokenVersions.isCurrent(username, version.longValue())) {
+            HotPathMetrics.increment(staleTokens);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<String> roles = claims.get(JwtService.ROLES_CLAIM, List.class);
+        UserDetails userDetails = new MyUserDetails(username, roleRegistry.authorities(roles));
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    private Claims parse(String jwt) {
+        try {
+            return HotPathMetrics.record(parseTimer, () -> jwtService.parseToken(jwt));
+        }
+        catch (ExpiredJwtException ex) {
+            HotPathMetrics.increment(expiredTokens);
+            throw ex;
+        }
+        catch (JwtException | IllegalArgumentException ex) {
+            HotPathMetrics.increment(invalidTokens);
+            throw ex;
+        }
+    }
+
+    private UserDetails loadUser(String username) {
+        try {
+            return HotPathMetrics.record(loadUserTimer, () -> userDetailsService.loadUserByUsername(username));
+        }
+        catch (UsernameNotFoundException ex) {
+            HotPathMetrics.increment(unknownUsers);
+            throw ex;
+        }
+    }
 }
@@ -1,70 +1,176 @@
 package com.example.les18.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
-public class JwtService {
+public class JwtService implements MeterBinder {
+        public static final String ROLES_CLAIM = "roles";
+        public static final String VERSION_CLAIM = "ver";
+        public static final Duration TOKEN_VALIDITY = Duration.ofDays(10);
+
         private final static String SECRET_KEY = "yabbadabbadooyabbadabbadooyabbadabbadooyabbadabbadoo";
 
-        private Key getSigningKey() {
-            byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-            return Keys.hmacShaKeyFor(keyBytes);
+        private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            }
+            catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        // decoded and parsed once, both are immutable and thread-safe
+        private final Key signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+
+        // SHA-256 of the compact token -> verified claims, evicted at the token's exp at the latest
+        private final Cache<ByteBuffer, Claims> verifiedTokens;
+
+        public JwtService(@Value("${app.jwt.cache.max-size:10000}") long cacheSize,
+                          @Value("${app.jwt.cache.max-ttl:10m}") Duration cacheTtl) {
+            this.verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(cacheSize)
+                    .expireAfter(new ClaimsExpiry(cacheTtl))
+                    .recordStats()
+                    .build();
         }
-        public String extractUsername(String token) {
-            return extractClaim(token, Claims::getSubject);
+
+        /**
+         * Verifies the signature and expiry of the token and returns its claims. A token that
+         * was verified before is served from the cache without redoing the HMAC check.
+         */
+        public Claims parseToken(String token) {
+            ByteBuffer digest = digest(token);
+            Claims claims = verifiedTokens.getIfPresent(digest);
+            if (claims == null) {
+                claims = parser.parseClaimsJws(token).getBody();
+                verifiedTokens.put(digest, claims);
+            }
+            return claims;
         }
 
-        private Date extractExpiration(String token) {
-            return extractClaim(token, Claims::getExpiration);
+        public String extractUsername(String token) {
+            return extractClaim(token, Claims::getSubject);
         }
 
         private <T> T extractClaim(String token, Function<Claims, T>
                 claimsResolver) {
-            final Claims claims = extractAllClaims(token);
+            final Claims claims = parseToken(token);
             return claimsResolver.apply(claims);
         }
 
-        private Claims extractAllClaims(String token) {
-            return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
+        private Boolean isTokenExpired(Claims claims) {
+            return claims.getExpiration().before(new Date());
         }
 
-        private Boolean isTokenExpired(String token) {
-            return extractExpiration(token).before(new Date());
+        public String generateToken(UserDetails userDetails) {
+            Map<String, Object> claims = new HashMap<>();
+            return createToken(claims, userDetails.getUsername());
         }
 
-        public String generateToken(UserDetails userDetails) {
+        /**
+         * Issues a self-contained token that carries the user's role names and token version,
+         * so it can be authenticated without loading the user.
+         */
+        public String generateToken(UserDetails userDetails, long version) {
+            List<String> roles = new ArrayList<>();
+            for (GrantedAuthority authority : userDetails.getAuthorities()) {
+                roles.add(authority.getAuthority());
+            }
             Map<String, Object> claims = new HashMap<>();
+            claims.put(ROLES_CLAIM, roles);
+            claims.put(VERSION_CLAIM, version);
             return createToken(claims, userDetails.getUsername());
         }
         private String createToken(Map<String, Object> claims, String
                 subject) {
-            long validPeriod = 1000 * 60 * 60 * 24 * 10; // 10 days in ms
+            long validPeriod = TOKEN_VALIDITY.toMillis();
             long currentTime = System.currentTimeMillis();
             return Jwts.builder()
                     .setClaims(claims)
+                    .setId(UUID.randomUUID().toString())
                     .setSubject(subject)
                     .setIssuedAt(new Date(currentTime))
                     .setExpiration(new Date(currentTime + validPeriod))
-                    .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                    .signWith(signingKey, SignatureAlgorithm.HS256)
                     .compact();
         }
 
         public Boolean validateToken(String token, UserDetails
                 userDetails) {
-            final String username = extractUsername(token);
+            return validateToken(parseToken(token), userDetails);
+        }
+
+        public Boolean validateToken(Claims claims, UserDetails
+                userDetails) {
+            final String username = claims.getSubject();
             return username.equals(userDetails.getUsername()) &&
-                    !isTokenExpired(token);
+                    !isTokenExpired(claims);
+        }
+
+        @Override
+        public void bindTo(MeterRegistry registry) {
+            CaffeineCacheMetrics.monitor(registry, verifiedTokens, "verifiedTokens");
+        }
+
+        private static ByteBuffer digest(String token) {
+            return ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        private static class ClaimsExpiry implements Expiry<ByteBuffer, Claims> {
+            private final long maxTtlNanos;
+
+            ClaimsExpiry(Duration maxTtl) {
+                this.maxTtlNanos = maxTtl.toNanos();
+            }
+
+            @Override
+            public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+                Date expiration = claims.getExpiration();
+                if (expiration == null) {
+                    return maxTtlNanos;
+                }
+                long untilExpiry = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis()).toNanos();
+                return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+            }
+
+            @Override
+            public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+
+            @Override
+            public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
         }
 }
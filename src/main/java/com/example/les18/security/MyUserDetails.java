@@ -3,39 +3,53 @@ package com.example.les18.security;
 import com.example.les18.model.Role;
 import com.example.les18.model.User;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Immutable snapshot of a {@link User}; it holds no reference to the entity, so it can be
+ * cached and shared between requests. The authority list is shared through the {@link RoleRegistry}.
+ */
 public class MyUserDetails implements UserDetails {
 
-    private final User user;
+    private final String username;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
 
-    public MyUserDetails(User user) {
-        this.user = user;
-    }
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        List<GrantedAuthority> authorities = new ArrayList<>();
+    public MyUserDetails(User user, RoleRegistry roleRegistry) {
+        this.username = user.getUsername();
+        this.password = user.getPassword();
 
+        List<String> rolenames = new ArrayList<>();
         for (Role role : user.getRoles()) {
-            authorities.add(new SimpleGrantedAuthority(role.getRolename()));
+            rolenames.add(role.getRolename());
         }
+        this.authorities = roleRegistry.authorities(rolenames);
+    }
 
+    // principal rebuilt from token claims, it carries no password
+    public MyUserDetails(String username, List<GrantedAuthority> authorities) {
+        this.username = username;
+        this.password = null;
+        this.authorities = authorities;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return username;
     }
 
     @Override
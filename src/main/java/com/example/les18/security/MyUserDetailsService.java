@@ -1,29 +1,51 @@
 package com.example.les18.security;
 
+import com.example.les18.datasource.ReadYourWrites;
 import com.example.les18.model.User;
 import com.example.les18.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import java.util.Optional;
 
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepos;
+    private final RoleRegistry roleRegistry;
+    private final ReadYourWrites readYourWrites;
 
-    public MyUserDetailsService(UserRepository repos) {
+    public MyUserDetailsService(UserRepository repos, RoleRegistry roleRegistry, ReadYourWrites readYourWrites) {
         this.userRepos = repos;
+        this.roleRegistry = roleRegistry;
+        this.readYourWrites = readYourWrites;
     }
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> ou = userRepos.findById(username);
+        // signing in right after the account was created or changed must not hit a lagging replica
+        Optional<User> ou = readYourWrites.readFor(username, () -> userRepos.findById(username));
         if (ou.isPresent()) {
             User user = ou.get();
-            return new MyUserDetails(user);
+            return new MyUserDetails(user, roleRegistry);
         }
         else {
             throw new UsernameNotFoundException(username);
         }
     }
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        Optional<User> ou = userRepos.findById(userDetails.getUsername());
+        if (ou.isPresent()) {
+            User user = ou.get();
+            user.setPassword(newPassword);
+            userRepos.save(user);
+            readYourWrites.markWritten(user.getUsername());
+            return new MyUserDetails(user, roleRegistry);
+        }
+        else {
+            throw new UsernameNotFoundException(userDetails.getUsername());
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.example.les18.security;
+
+import com.example.les18.model.Role;
+import com.example.les18.repository.RoleRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of the roles table. Hands out one shared {@link GrantedAuthority} per role
+ * name and one shared, immutable authority list per combination of role names, so building
+ * the authorities of a user or a token allocates nothing once a combination has been seen.
+ * Loaded when the application is ready and refreshed by writers of roles. Unknown role names
+ * trigger a reload at most once per {@link #MISS_RELOAD_INTERVAL_NANOS}, so a stream of bogus
+ * names cannot turn every request into a full read of the roles table.
+ */
+@Component
+public class RoleRegistry {
+
+    // role combinations are few in practice, this only guards against unbounded growth
+    private static final int MAX_AUTHORITY_SETS = 1024;
+    // roles created on another instance become known here within this interval
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final RoleRepository roleRepos;
+
+    private volatile Set<String> rolenames = Set.of();
+    private final ConcurrentMap<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, List<GrantedAuthority>> authoritySets = new ConcurrentHashMap<>();
+    private final AtomicLong nextMissReload = new AtomicLong(System.nanoTime());
+
+    public RoleRegistry(RoleRepository roleRepos) {
+        this.roleRepos = roleRepos;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        Set<String> loaded = new HashSet<>();
+        for (Role role : roleRepos.findAll()) {
+            loaded.add(role.getRolename());
+            authority(role.getRolename());
+        }
+        rolenames = Set.copyOf(loaded);
+    }
+
+    /**
+     * Returns whether the role exists. A name that is not known yet reloads the roles, unless
+     * another miss did so less than the reload interval ago.
+     */
+    public boolean exists(String rolename) {
+        if (rolenames.contains(rolename)) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long next = nextMissReload.get();
+        if (now - next >= 0 && nextMissReload.compareAndSet(next, now + MISS_RELOAD_INTERVAL_NANOS)) {
+            refresh();
+        }
+        return rolenames.contains(rolename);
+    }
+
+    public GrantedAuthority authority(String rolename) {
+        return authorities.computeIfAbsent(rolename, SimpleGrantedAuthority::new);
+    }
+
+    /**
+     * Returns the shared authority list for the role names, in the given order.
+     */
+    public List<GrantedAuthority> authorities(List<String> rolenames) {
+        List<GrantedAuthority> cached = authoritySets.get(rolenames);
+        if (cached != null) {
+            return cached;
+        }
+        List<GrantedAuthority> list = new ArrayList<>(rolenames.size());
+        for (String rolename : rolenames) {
+            list.add(authority(rolename));
+        }
+        List<GrantedAuthority> result = List.copyOf(list);
+        if (authoritySets.size() < MAX_AUTHORITY_SETS) {
+            authoritySets.putIfAbsent(List.copyOf(rolenames), result);
+        }
+        return result;
+    }
+}
@@ -1,6 +1,16 @@
 package com.example.les18.security;
 
+import com.example.les18.concurrent.AdaptiveConcurrencyLimit;
+import com.example.les18.concurrent.Bulkhead;
+import com.example.les18.concurrent.TokenBuckets;
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.metrics.HotPathMetrics;
+import com.example.les18.metrics.TimedPasswordEncoder;
 import com.example.les18.repository.UserRepository;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -10,21 +20,33 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     private final JwtService jwtService;
     private final UserRepository userRepository;
+    private final HotPathMetrics metrics;
+    private final TokenVersions tokenVersions;
+    private final RoleRegistry roleRegistry;
+    private final ReadYourWrites readYourWrites;
 
-    public SecurityConfig(JwtService service, UserRepository userRepos) {
+    public SecurityConfig(JwtService service, UserRepository userRepos, HotPathMetrics metrics, TokenVersions tokenVersions,
+                          RoleRegistry roleRegistry, ReadYourWrites readYourWrites) {
         this.jwtService = service;
         this.userRepository = userRepos;
+        this.metrics = metrics;
+        this.tokenVersions = tokenVersions;
+        this.roleRegistry = roleRegistry;
+        this.readYourWrites = readYourWrites;
     }
 
     @Bean
@@ -37,29 +59,77 @@ public class SecurityConfig {
     }
 
     @Bean
-    public UserDetailsService userDetailsService() {
-        return new MyUserDetailsService(this.userRepository);
+    public CachedUserDetailsService userDetailsService(@Value("${app.user-cache.max-size:10000}") long maxSize,
+                                                       @Value("${app.user-cache.ttl:5m}") Duration ttl) {
+        return new CachedUserDetailsService(new MyUserDetailsService(this.userRepository, roleRegistry, readYourWrites), maxSize, ttl);
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${app.auth.bcrypt-strength:10}") int strength) {
+        return new TimedPasswordEncoder(new RehashingBCryptPasswordEncoder(strength), metrics);
+    }
+
+    @Bean
+    public Bulkhead authBulkhead(@Value("${app.auth.threads:0}") int threads,
+                                 @Value("${app.auth.queue-capacity:64}") int queueCapacity,
+                                 @Value("${app.auth.retry-after:1s}") Duration retryAfter) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new Bulkhead("auth", poolSize, queueCapacity, retryAfter);
+    }
+
+    @Bean
+    public TokenRevocationStore tokenRevocationStore(@Value("${app.auth.revocation.expected-entries:1000000}") long expectedEntries,
+                                                     @Value("${app.auth.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                                     @Value("${app.auth.revocation.tick:1m}") Duration tick,
+                                                     @Value("${app.auth.revocation.snapshot-file:}") String snapshotFile) {
+        return new TokenRevocationStore(expectedEntries, falsePositiveRate, tick, JwtService.TOKEN_VALIDITY,
+                snapshotFile.isBlank() ? null : Path.of(snapshotFile), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+    public TokenBuckets userTokenBuckets(@Value("${app.admission.rate:50}") double rate,
+                                         @Value("${app.admission.burst:100}") int burst) {
+        return new TokenBuckets(rate, burst, Duration.ofMinutes(5), 100_000);
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+    public AdaptiveConcurrencyLimit concurrencyLimit(@Value("${app.admission.initial-limit:100}") int initialLimit,
+                                                     @Value("${app.admission.min-limit:10}") int minLimit,
+                                                     @Value("${app.admission.max-limit:1000}") int maxLimit,
+                                                     @Value("${app.admission.latency-target:250ms}") Duration latencyTarget,
+                                                     @Value("${app.admission.backoff:0.9}") double backoff) {
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTarget, backoff);
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, UserDetailsService udService, TokenRevocationStore revocations,
+                                           @Value("${app.auth.stateless:false}") boolean stateless,
+                                           ObjectProvider<TokenBuckets> buckets, ObjectProvider<AdaptiveConcurrencyLimit> limit,
+                                           @Value("${app.admission.retry-after:1s}") Duration retryAfter) throws Exception {
         http
                 .httpBasic().disable()
                 .authorizeHttpRequests()
+                // async mode (app.async.enabled), the order stream and error pages dispatch again; the request was authorized already
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .requestMatchers(HttpMethod.POST, "/users").permitAll()
                 .requestMatchers(HttpMethod.POST, "/auth").permitAll()
+                .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                // metrics name products, users and internals; scrapers authenticate with an admin token
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/users/batch", "/users/*/logout").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/auth/revocations").hasRole("ADMIN")
                 .requestMatchers("/secret").hasRole("ADMIN")
                 .requestMatchers("/**").authenticated()
                 .anyRequest().denyAll()
                 .and()
-                .addFilterBefore(new JwtRequestFilter(jwtService, userDetailsService()), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new JwtRequestFilter(jwtService, udService, metrics, stateless, tokenVersions, revocations, roleRegistry), UsernamePasswordAuthenticationFilter.class)
                 .csrf().disable()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+        if (buckets.getIfAvailable() != null && limit.getIfAvailable() != null) {
+            http.addFilterAfter(new AdmissionControlFilter(buckets.getObject(), limit.getObject(), retryAfter, metrics), JwtRequestFilter.class);
+        }
 
         return http.build();
     }
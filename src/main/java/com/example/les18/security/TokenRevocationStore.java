@@ -0,0 +1,230 @@
+package com.example.les18.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revoked token ids (the jti claim) until the token's own expiry. Lookups go through a Bloom
+ * filter first, so for the common case of a token that was never revoked {@link #isRevoked}
+ * touches a few bit words and takes no lock; a hit is confirmed against the exact set.
+ * <p>
+ * Every entry is also placed in a timing wheel slot by its expiry. A background tick drains
+ * the slots that have passed and drops the expired ids; the Bloom filter, which cannot delete,
+ * is rebuilt once more than half of its entries are gone. The set can optionally be written
+ * to a snapshot file on every tick with changes and on shutdown, and is read back at startup.
+ */
+public class TokenRevocationStore implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationStore.class);
+
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final Clock clock;
+    private final Path snapshotFile;
+
+    // jti -> exp in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+
+    private final Queue<String>[] wheel;
+    private final long tickMillis;
+    private long processedTick;
+
+    private final ScheduledExecutorService ticker;
+    private long bloomEntries;
+    private long removedSinceRebuild;
+    private boolean dirty;
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public TokenRevocationStore(long expectedEntries, double falsePositiveRate, Duration tick, Duration horizon,
+                                Path snapshotFile, Clock clock) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.clock = clock;
+        this.snapshotFile = snapshotFile;
+        this.bloom = new BloomFilter(expectedEntries, falsePositiveRate);
+        this.tickMillis = tick.toMillis();
+        this.wheel = new Queue[(int) (horizon.toMillis() / tickMillis) + 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.processedTick = clock.millis() / tickMillis - 1;
+        if (snapshotFile != null) {
+            load();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("revocations-"));
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloom.mightContain(jti)) {
+            return false;
+        }
+        if (revoked.containsKey(jti)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revokes the token id until {@code expiresAt} (epoch millis). Ids that already expired
+     * are ignored, the token would be rejected anyway.
+     */
+    public synchronized void revoke(String jti, long expiresAt) {
+        if (expiresAt <= clock.millis() || revoked.putIfAbsent(jti, expiresAt) != null) {
+            return;
+        }
+        bloom.add(jti);
+        bloomEntries++;
+        wheel[slot(expiresAt / tickMillis)].add(jti);
+        dirty = true;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Drains the wheel slots up to {@code now} and drops every id that has expired.
+     */
+    synchronized void purgeExpired(long now) {
+        // only slots whose tick lies completely in the past hold nothing but expired ids
+        long dueTick = now / tickMillis - 1;
+        long ticks = Math.min(dueTick - processedTick, wheel.length);
+        for (long t = dueTick - ticks + 1; t <= dueTick; t++) {
+            Queue<String> slot = wheel[slot(t)];
+            // ids beyond one turn of the wheel go back into the same slot
+            for (int i = slot.size(); i > 0; i--) {
+                String jti = slot.poll();
+                Long expiresAt = revoked.get(jti);
+                if (expiresAt == null) {
+                    continue;
+                }
+                if (expiresAt <= now) {
+                    revoked.remove(jti);
+                    removedSinceRebuild++;
+                    purged.increment();
+                    dirty = true;
+                }
+                else {
+                    slot.add(jti);
+                }
+            }
+        }
+        processedTick = Math.max(processedTick, dueTick);
+        if (removedSinceRebuild > bloomEntries / 2) {
+            rebuildBloom();
+        }
+    }
+
+    private void rebuildBloom() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size()), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        bloom = rebuilt;
+        bloomEntries = revoked.size();
+        removedSinceRebuild = 0;
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.length);
+    }
+
+    private void tick() {
+        try {
+            purgeExpired(clock.millis());
+            if (snapshotFile != null) {
+                save();
+            }
+        }
+        catch (RuntimeException ex) {
+            log.warn("Revocation store tick failed", ex);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(snapshotFile, StandardCharsets.US_ASCII);
+            for (String line : lines) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    revoke(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)));
+                }
+            }
+            dirty = false;
+            log.info("Loaded {} revoked tokens from {}", revoked.size(), snapshotFile);
+        }
+        catch (IOException | NumberFormatException ex) {
+            log.warn("Could not read revocation snapshot {}", snapshotFile, ex);
+        }
+    }
+
+    private synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.US_ASCII)) {
+                for (Map.Entry<String, Long> entry : revoked.entrySet()) {
+                    out.write(entry.getKey());
+                    out.write('\t');
+                    out.write(Long.toString(entry.getValue()));
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        }
+        catch (IOException ex) {
+            log.warn("Could not write revocation snapshot {}", snapshotFile, ex);
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("auth.revocations.size", revoked, Map::size)
+                .register(registry);
+        FunctionCounter.builder("auth.revocations.purged", purged, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("auth.revocations.false-positives", falsePositives, LongAdder::sum)
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        if (snapshotFile != null) {
+            save();
+        }
+    }
+}
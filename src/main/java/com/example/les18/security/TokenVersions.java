@@ -0,0 +1,45 @@
+package com.example.les18.security;
+
+import com.example.les18.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Per-user token version for stateless authentication. A token carries the version that was
+ * current when it was issued; bumping the version invalidates every token issued before.
+ * Versions are stored with the user, so they survive a restart and are shared by all instances.
+ * Lookups are cached for a short time; a bump on another instance takes effect here at the
+ * latest once the cached version expires.
+ */
+@Component
+public class TokenVersions {
+
+    private final UserRepository userRepos;
+    private final LoadingCache<String, Long> versions;
+
+    public TokenVersions(UserRepository userRepos,
+                         @Value("${app.auth.token-version-ttl:5s}") Duration ttl) {
+        this.userRepos = userRepos;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(ttl)
+                .build(username -> userRepos.findTokenVersion(username).orElse(0L));
+    }
+
+    public long current(String username) {
+        return versions.get(username);
+    }
+
+    public boolean isCurrent(String username, long version) {
+        return current(username) == version;
+    }
+
+    public void bump(String username) {
+        userRepos.incrementTokenVersion(username);
+        versions.invalidate(username);
+    }
+}
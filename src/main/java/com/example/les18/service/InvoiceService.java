@@ -0,0 +1,126 @@
+package com.example.les18.service;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.InvoiceSummaryDto;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.dto.ProductRevenueDto;
+import com.example.les18.model.ProductRevenue;
+import com.example.les18.repository.OrderRepository;
+import com.example.les18.repository.ProductRevenueRepository;
+import com.example.les18.shard.OrderShards;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invoice amounts are computed by the database; revenue totals per product are kept in the
+ * product_revenue table, which is updated in the same transaction as every order insert.
+ */
+@Service
+public class InvoiceService {
+
+    private final OrderRepository orderRepos;
+    private final ProductRevenueRepository revenueRepos;
+    private final OrderShards shards;
+    private final TransactionTemplate newTransaction;
+
+    public InvoiceService(OrderRepository orderRepos, ProductRevenueRepository revenueRepos, OrderShards shards,
+                          PlatformTransactionManager transactionManager) {
+        this.orderRepos = orderRepos;
+        this.revenueRepos = revenueRepos;
+        this.shards = shards;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public List<InvoiceDto> getInvoices(Collection<Integer> orderids) {
+        if (orderids.isEmpty()) {
+            return List.of();
+        }
+        if (shards.isEnabled()) {
+            return shards.findInvoices(orderids);
+        }
+        return orderRepos.findInvoicesByIds(orderids);
+    }
+
+    @Transactional(readOnly = true)
+    public InvoiceSummaryDto getSummary() {
+        InvoiceSummaryDto summary = new InvoiceSummaryDto();
+        summary.products = new ArrayList<>();
+        for (ProductRevenue pr : revenueRepos.findAllByOrderByProductname()) {
+            ProductRevenueDto prdto = new ProductRevenueDto();
+            prdto.productname = pr.getProductname();
+            prdto.revenue = pr.getRevenue();
+            prdto.quantity = pr.getQuantity();
+            prdto.orders = pr.getOrdercount();
+            summary.products.add(prdto);
+
+            summary.revenue += prdto.revenue;
+            summary.quantity += prdto.quantity;
+            summary.orders += prdto.orders;
+        }
+        return summary;
+    }
+
+    @EventListener
+    public void onOrdersCreated(OrdersCreatedEvent event) {
+        Map<String, ProductRevenueDto> deltas = new HashMap<>();
+        for (OrderDto odto : event.orders()) {
+            accumulate(deltas, odto);
+        }
+        deltas.forEach(this::addToTotals);
+    }
+
+    private static void accumulate(Map<String, ProductRevenueDto> deltas, OrderDto odto) {
+        String productname = odto.productname == null ? "" : odto.productname;
+        ProductRevenueDto delta = deltas.computeIfAbsent(productname, k -> new ProductRevenueDto());
+        delta.revenue += odto.quantity * odto.unitprice;
+        delta.quantity += odto.quantity;
+        delta.orders++;
+    }
+
+    private void addToTotals(String productname, ProductRevenueDto delta) {
+        if (revenueRepos.addToTotals(productname, delta.revenue, delta.quantity, delta.orders) == 0) {
+            // first order for this product: create the zero row on the side so that a concurrent
+            // insert of the same row cannot abort the order transaction, then add as usual
+            try {
+                newTransaction.executeWithoutResult(status -> {
+                    if (!revenueRepos.existsById(productname)) {
+                        revenueRepos.save(new ProductRevenue(productname));
+                    }
+                });
+            }
+            catch (DataIntegrityViolationException ex) {
+                // created concurrently, which is just as good
+            }
+            revenueRepos.addToTotals(productname, delta.revenue, delta.quantity, delta.orders);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildTotalsIfEmpty() {
+        if (revenueRepos.count() != 0) {
+            return;
+        }
+        if (shards.isEnabled()) {
+            // the orders table on the primary is not written with sharding on
+            Map<String, ProductRevenueDto> totals = new HashMap<>();
+            shards.forEachOrder(odto -> accumulate(totals, odto));
+            totals.forEach(this::addToTotals);
+            return;
+        }
+        revenueRepos.rebuildTotals();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.les18.service;
+
+import com.example.les18.dto.OrderDto;
+import com.example.les18.model.Order;
+import com.example.les18.shard.OrderShards;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Persists orders in chunks of {@code app.orders.batch.chunk-size}, one transaction per chunk.
+ * Hibernate groups the inserts of a chunk into JDBC batches of {@code hibernate.jdbc.batch_size}.
+ */
+@Component
+public class OrderBatchWriter {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher events;
+    private final OrderShards shards;
+    private final int chunkSize;
+
+    public OrderBatchWriter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher events, OrderShards shards,
+                            @Value("${app.orders.batch.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.shards = shards;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the generated ids in input order. Chunks that were written before a failure stay committed.
+     */
+    public List<Integer> write(Iterator<OrderDto> newOrderDtos) {
+        List<Integer> ids = new ArrayList<>();
+        List<Order> chunk = new ArrayList<>(chunkSize);
+        while (newOrderDtos.hasNext()) {
+            OrderDto dto = newOrderDtos.next();
+            chunk.add(new Order(dto.productname, dto.unitprice, dto.quantity));
+            if (chunk.size() == chunkSize) {
+                persist(chunk, ids);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            persist(chunk, ids);
+        }
+        return ids;
+    }
+
+    private void persist(List<Order> chunk, List<Integer> ids) {
+        // the shards commit on their own, the primary transaction only carries the revenue update
+        if (shards.isEnabled()) {
+            shards.insert(chunk);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<OrderDto> created = new ArrayList<>(chunk.size());
+            if (!shards.isEnabled()) {
+                chunk.forEach(entityManager::persist);
+                entityManager.flush();
+                entityManager.clear();
+            }
+            for (Order o : chunk) {
+                created.add(new OrderDto(o.getOrderid(), o.getProductname(), o.getUnitprice(), o.getQuantity()));
+            }
+            events.publishEvent(new OrdersCreatedEvent(created));
+        });
+        for (Order o : chunk) {
+            ids.add(o.getOrderid());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.les18.service;
+
+import com.example.les18.model.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache of immutable order snapshots. A snapshot carries the order's version, which
+ * is also its ETag; whoever changes an order replaces the snapshot with {@link #putAfterCommit},
+ * otherwise entries only leave the cache through eviction.
+ */
+@Component
+public class OrderCache implements MeterBinder {
+
+    public record Snapshot(int orderid, String productname, double unitprice, int quantity, int version) {
+
+        static Snapshot of(Order o) {
+            int version = o.getVersion() == null ? 0 : o.getVersion();
+            return new Snapshot(o.getOrderid(), o.getProductname(), o.getUnitprice(), o.getQuantity(), version);
+        }
+
+        public double amount() {
+            return quantity * unitprice;
+        }
+    }
+
+    private final Cache<Integer, Snapshot> cache;
+
+    public OrderCache(@Value("${app.orders.cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached snapshot, or loads and caches it; null when the loader finds nothing.
+     */
+    public Snapshot get(int orderid, Function<Integer, Order> loader) {
+        return cache.get(orderid, id -> {
+            Order o = loader.apply(id);
+            return o == null ? null : Snapshot.of(o);
+        });
+    }
+
+    /**
+     * Returns the cached snapshots of the given orders, loading all misses with one call to the
+     * loader and caching what it finds. Orders the loader does not find are left out.
+     */
+    public Map<Integer, Snapshot> getAll(Collection<Integer> orderids, Function<Set<Integer>, Iterable<Order>> loader) {
+        return cache.getAll(orderids, missing -> {
+            Map<Integer, Snapshot> loaded = new HashMap<>();
+            for (Order o : loader.apply(Set.copyOf(missing))) {
+                loaded.put(o.getOrderid(), Snapshot.of(o));
+            }
+            return loaded;
+        });
+    }
+
+    public Snapshot getIfPresent(int orderid) {
+        return cache.getIfPresent(orderid);
+    }
+
+    /**
+     * Caches a freshly written order once its transaction has committed.
+     */
+    public void putAfterCommit(Order o) {
+        Snapshot snapshot = Snapshot.of(o);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(snapshot.orderid(), snapshot);
+                }
+            });
+        }
+        else {
+            cache.put(snapshot.orderid(), snapshot);
+        }
+    }
+
+    /**
+     * Caches an order right away, for orders that become readable before they are in the database.
+     */
+    public void put(Order o) {
+        cache.put(o.getOrderid(), Snapshot.of(o));
+    }
+
+    public double hitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "orders");
+    }
+}
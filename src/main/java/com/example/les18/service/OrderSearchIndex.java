@@ -0,0 +1,308 @@
+package com.example.les18.service;
+
+import com.example.les18.dto.OrderDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index from the lower-cased words of product names to order ids, built by
+ * streaming all orders once the application is ready and kept current from committed
+ * {@link OrdersCreatedEvent}s. Every
+ * query word matches the indexed words it is a prefix of (a whole word is its own prefix), and
+ * all query words have to match. Posting lists are sorted {@code int} arrays, so a search is a
+ * few binary searches and a lazy merge that stops at the end of the page.
+ * <p>
+ * Writes are serialized; searches take no lock. A posting list publishes its ids and their count
+ * together as one immutable slice; the array only grows past the published count or is replaced
+ * by a copy, so a concurrent search sees either the old or the new ids.
+ */
+@Component
+public class OrderSearchIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSearchIndex.class);
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // shorter query words only match whole words, a one-letter prefix would pull in half the index
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final int[] NONE = new int[0];
+
+    private static final int EXHAUSTED = -1;
+
+    private static final Duration FIRST_RETRY = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY = Duration.ofMinutes(5);
+
+    private record Slice(int[] ids, int size) {
+    }
+
+    private static final class Postings {
+        volatile Slice slice = new Slice(new int[4], 0);
+
+        int size() {
+            return slice.size();
+        }
+
+        // caller holds the index's write lock
+        void add(int orderid) {
+            int[] ids = slice.ids();
+            int n = slice.size();
+            if (n == 0 || orderid > ids[n - 1]) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n] = orderid;
+                slice = new Slice(ids, n + 1);
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, n, orderid);
+            if (at >= 0) {
+                return;
+            }
+            // committed out of id order: insert into a copy so searches never see a shifting array
+            at = -at - 1;
+            int[] copy = new int[Math.max(ids.length, n + 1)];
+            System.arraycopy(ids, 0, copy, 0, at);
+            copy[at] = orderid;
+            System.arraycopy(ids, at, copy, at + 1, n - at);
+            slice = new Slice(copy, n + 1);
+        }
+
+    }
+
+    private final ObjectProvider<OrderService> orderService;
+    private final NavigableMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+    private volatile boolean ready;
+    private long postingCount;
+
+    public OrderSearchIndex(ObjectProvider<OrderService> orderService) {
+        this.orderService = orderService;
+    }
+
+    // built in the background, searches answer 503 until it is done; a failed build is retried
+    // with a growing delay, adding an order twice is a no-op so a retry can start over
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        CustomizableThreadFactory threads = new CustomizableThreadFactory("order-search-index-");
+        threads.setDaemon(true);
+        threads.newThread(() -> {
+            Duration delay = FIRST_RETRY;
+            while (true) {
+                try {
+                    build(orderService.getObject()::exportOrders);
+                    return;
+                }
+                catch (RuntimeException ex) {
+                    log.error("Building the order search index failed, retrying in {}", delay, ex);
+                }
+                try {
+                    Thread.sleep(delay.toMillis());
+                }
+                catch (InterruptedException ex) {
+                    return;
+                }
+                delay = delay.multipliedBy(2);
+                if (delay.compareTo(MAX_RETRY) > 0) {
+                    delay = MAX_RETRY;
+                }
+            }
+        }).start();
+    }
+
+    @TransactionalEventListener
+    public void onOrdersCreated(OrdersCreatedEvent event) {
+        addAll(event.orders());
+    }
+
+    public void add(int orderid, String productname) {
+        List<String> words = words(productname);
+        synchronized (writeLock) {
+            for (String word : words) {
+                Postings postings = terms.computeIfAbsent(word, k -> new Postings());
+                int before = postings.size();
+                postings.add(orderid);
+                postingCount += postings.size() - before;
+            }
+        }
+    }
+
+    public void addAll(Collection<OrderDto> orders) {
+        for (OrderDto o : orders) {
+            add(o.orderid, o.productname);
+        }
+    }
+
+    /**
+     * Fills the index from all existing orders. Orders added concurrently are not lost or
+     * doubled, so this can run while new orders come in.
+     */
+    void build(Consumer<Consumer<OrderDto>> allOrders) {
+        long start = System.nanoTime();
+        allOrders.accept(o -> add(o.orderid, o.productname));
+        ready = true;
+        log.info("Order search index built with {} words in {} ms", terms.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns up to {@code limit} ids of matching orders above {@code afterOrderid}, ascending.
+     * Nothing is copied: every query word gets a cursor over the slices of its matching words,
+     * the cursors leapfrog to the next id they all contain and stop once the page is full.
+     */
+    public int[] search(String query, int afterOrderid, int limit) {
+        List<String> words = words(query);
+        if (words.isEmpty() || limit <= 0 || afterOrderid == Integer.MAX_VALUE) {
+            return NONE;
+        }
+        List<Cursor> cursors = new ArrayList<>(words.size());
+        for (String word : words) {
+            Cursor cursor = cursor(word, afterOrderid);
+            if (cursor.isEmpty()) {
+                return NONE;
+            }
+            cursors.add(cursor);
+        }
+
+        int[] page = new int[limit];
+        int found = 0;
+        int candidate = afterOrderid + 1;
+        search:
+        while (found < limit) {
+            for (Cursor cursor : cursors) {
+                int next = cursor.seek(candidate);
+                if (next == EXHAUSTED) {
+                    break search;
+                }
+                if (next != candidate) {
+                    candidate = next;
+                    continue search;
+                }
+            }
+            page[found++] = candidate;
+            if (candidate == Integer.MAX_VALUE) {
+                break;
+            }
+            candidate++;
+        }
+        return found == page.length ? page : Arrays.copyOf(page, found);
+    }
+
+    private Cursor cursor(String word, int afterOrderid) {
+        List<Slice> slices = new ArrayList<>();
+        if (word.length() < MIN_PREFIX_LENGTH) {
+            Postings postings = terms.get(word);
+            if (postings != null) {
+                slices.add(postings.slice);
+            }
+        }
+        else {
+            for (Postings postings : terms.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                slices.add(postings.slice);
+            }
+        }
+        return new Cursor(slices, afterOrderid);
+    }
+
+    /**
+     * Ascending union of the ids in a set of slices, read in place. A heap holds the slices by
+     * their current id; seeking only touches the slices whose current id is below the target.
+     */
+    private static final class Cursor {
+
+        private final Slice[] slices;
+        private final int[] positions;
+        private final PriorityQueue<Integer> heads;
+
+        Cursor(List<Slice> slices, int afterOrderid) {
+            this.slices = slices.toArray(new Slice[0]);
+            this.positions = new int[this.slices.length];
+            this.heads = new PriorityQueue<>(Math.max(1, this.slices.length), Comparator.comparingInt(this::current));
+            for (int i = 0; i < this.slices.length; i++) {
+                positions[i] = firstAbove(this.slices[i], 0, afterOrderid);
+                if (positions[i] < this.slices[i].size()) {
+                    heads.add(i);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return heads.isEmpty();
+        }
+
+        // the smallest id at or above the target, or EXHAUSTED
+        int seek(int target) {
+            while (!heads.isEmpty()) {
+                int i = heads.peek();
+                int id = current(i);
+                if (id >= target) {
+                    return id;
+                }
+                heads.poll();
+                positions[i] = firstAbove(slices[i], positions[i], target - 1);
+                if (positions[i] < slices[i].size()) {
+                    heads.add(i);
+                }
+            }
+            return EXHAUSTED;
+        }
+
+        private int current(int i) {
+            return slices[i].ids()[positions[i]];
+        }
+
+        // position of the first id above the given one, searching from the given position
+        private static int firstAbove(Slice slice, int from, int orderid) {
+            int at = Arrays.binarySearch(slice.ids(), from, slice.size(), orderid);
+            return at >= 0 ? at + 1 : -at - 1;
+        }
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text != null) {
+            for (String word : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (!word.isEmpty() && !words.contains(word)) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("orders.search.words", terms, NavigableMap::size)
+                .description("Distinct words in the order search index")
+                .register(registry);
+        Gauge.builder("orders.search.postings", this, index -> index.postingCount)
+                .description("Order ids stored in the order search index")
+                .register(registry);
+    }
+}
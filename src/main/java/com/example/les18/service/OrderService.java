@@ -1,45 +1,191 @@
 package com.example.les18.service;
 
+import com.example.les18.datasource.ReadYourWrites;
 import com.example.les18.dto.OrderDto;
+import com.example.les18.journal.OrderJournal;
 import com.example.les18.model.Order;
 import com.example.les18.repository.OrderRepository;
+import com.example.les18.shard.OrderShards;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import java.util.Optional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
 
     private final OrderRepository orderRepos;
+    private final OrderBatchWriter batchWriter;
+    private final ApplicationEventPublisher events;
+    private final OrderCache cache;
+    private final OrderJournal journal;
+    private final ReadYourWrites readYourWrites;
+    private final OrderShards shards;
+    private final OrderSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
 
-    public OrderService(OrderRepository repos) {
+    public OrderService(OrderRepository repos, OrderBatchWriter batchWriter, ApplicationEventPublisher events, OrderCache cache,
+                        OrderJournal journal, ReadYourWrites readYourWrites, OrderShards shards, OrderSearchIndex searchIndex,
+                        PlatformTransactionManager transactionManager) {
         this.orderRepos = repos;
+        this.batchWriter = batchWriter;
+        this.events = events;
+        this.cache = cache;
+        this.journal = journal;
+        this.readYourWrites = readYourWrites;
+        this.shards = shards;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
+
+    // not transactional itself: the journal path never touches the database
+    @Timed("orders.service")
     public int putOrder(OrderDto newOrderDto) {
         Order o = new Order(newOrderDto.productname, newOrderDto.unitprice, newOrderDto.quantity);
 
-        orderRepos.save(o);
+        if (journal.isEnabled()) {
+            // write-behind: cached right away so the order can be read before the journal is drained
+            journal.append(o);
+            cache.put(o);
+            searchIndex.add(o.getOrderid(), o.getProductname());
+        }
+        else if (shards.isEnabled()) {
+            // the shards commit on their own, the primary transaction only carries the revenue update
+            shards.insert(List.of(o));
+            transactionTemplate.executeWithoutResult(status -> created(o));
+        }
+        else {
+            transactionTemplate.executeWithoutResult(status -> {
+                orderRepos.save(o);
+                created(o);
+            });
+        }
+        readYourWrites.markWritten();
 
         return o.getOrderid();
     }
+
+    @Timed("orders.service")
+    public List<Integer> putOrders(Iterator<OrderDto> newOrderDtos) {
+        List<Integer> orderids = batchWriter.write(newOrderDtos);
+        readYourWrites.markWritten();
+        return orderids;
+    }
+
+    @Timed("orders.service")
     public OrderDto getOrder(int orderid) {
-        Optional<Order> oo = orderRepos.findById(orderid);
-        if (oo.isPresent()) {
-            Order o = oo.get();
+        OrderCache.Snapshot o = cache.get(orderid, this::findOrder);
+        if (o != null) {
             OrderDto odto = new OrderDto();
-            odto.productname = o.getProductname();
-            odto.unitprice = o.getUnitprice();
-            odto.quantity = o.getQuantity();
+            odto.productname = o.productname();
+            odto.unitprice = o.unitprice();
+            odto.quantity = o.quantity();
             return odto;
         }
         return null;
     }
 
+    /**
+     * Returns the version of the order, or null when it does not exist. Served from the cache
+     * when possible, otherwise by a query that reads the version column only.
+     */
+    @Timed("orders.service")
+    public Integer getOrderVersion(int orderid) {
+        OrderCache.Snapshot o = cache.getIfPresent(orderid);
+        if (o != null) {
+            return o.version();
+        }
+        if (shards.isEnabled()) {
+            return shards.findVersion(orderid).orElse(null);
+        }
+        return orderRepos.findVersionById(orderid).orElse(null);
+    }
+
+    @Timed("orders.service")
+    public List<OrderDto> listOrders(int afterOrderid, int limit) {
+        if (shards.isEnabled()) {
+            return shards.findPageAfter(afterOrderid, limit);
+        }
+        return orderRepos.findPageAfter(afterOrderid, PageRequest.ofSize(limit));
+    }
+
+    /**
+     * Returns orders whose product name has a word starting with every word of the query, in id
+     * order, or null while the search index is still being built.
+     */
+    @Timed("orders.service")
+    public List<OrderDto> searchOrders(String query, int afterOrderid, int limit) {
+        if (!searchIndex.isReady()) {
+            return null;
+        }
+        int[] orderids = searchIndex.search(query, afterOrderid, limit);
+        List<Integer> page = Arrays.stream(orderids).boxed().toList();
+        Map<Integer, OrderCache.Snapshot> found = cache.getAll(page, this::findOrders);
+        List<OrderDto> orders = new ArrayList<>(orderids.length);
+        for (int orderid : orderids) {
+            OrderCache.Snapshot o = found.get(orderid);
+            if (o != null) {
+                orders.add(new OrderDto(o.orderid(), o.productname(), o.unitprice(), o.quantity()));
+            }
+        }
+        return orders;
+    }
+
+    @Timed("orders.service")
+    @Transactional(readOnly = true)
+    public void exportOrders(Consumer<OrderDto> action) {
+        if (shards.isEnabled()) {
+            shards.forEachOrder(action);
+            return;
+        }
+        orderRepos.forEachOrder(o -> action.accept(toDto(o)));
+    }
+
+    @Timed("orders.service")
     public double getAmount(int orderid) {
-        Optional<Order> oo = orderRepos.findById(orderid);
-        if (oo.isPresent()) {
-            Order o = oo.get();
-            return o.calculateAmount();
+        OrderCache.Snapshot o = cache.get(orderid, this::findOrder);
+        if (o != null) {
+            return o.amount();
         }
         return 0;
     }
+
+    private void created(Order o) {
+        events.publishEvent(new OrdersCreatedEvent(List.of(toDto(o))));
+        cache.putAfterCommit(o);
+    }
+
+    private Order findOrder(int orderid) {
+        if (shards.isEnabled()) {
+            return shards.find(orderid).orElse(null);
+        }
+        return orderRepos.findById(orderid).orElse(null);
+    }
+
+    private Iterable<Order> findOrders(Set<Integer> orderids) {
+        if (shards.isEnabled()) {
+            return shards.findAll(orderids);
+        }
+        return orderRepos.findAllById(orderids);
+    }
+
+    private static OrderDto toDto(Order o) {
+        OrderDto odto = new OrderDto();
+        odto.orderid = o.getOrderid();
+        odto.productname = o.getProductname();
+        odto.unitprice = o.getUnitprice();
+        odto.quantity = o.getQuantity();
+        return odto;
+    }
 }
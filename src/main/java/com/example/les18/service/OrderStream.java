@@ -0,0 +1,269 @@
+package com.example.les18.service;
+
+import com.example.les18.dto.OrderDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes committed orders to server-sent event subscribers. Every order gets the event id
+ * {@code <epoch>-<seq>}: a random epoch drawn when this stream starts, and the next number of its
+ * publish sequence. The last {@code replay-size} orders are kept in a ring buffer so a reconnecting
+ * client can resume after the event id it saw last. An id from another epoch, handed out before a
+ * restart or by another instance, replays the whole buffer. Order ids are not usable for this,
+ * orders do not commit in id order.
+ * <p>
+ * Subscribers hold no thread while idle. Each has a bounded queue that the commit path only
+ * appends to; a small shared pool writes the queues out. A subscriber whose queue is full
+ * either loses the new event ({@code overflow=drop}) or is disconnected and left to resume
+ * from the replay buffer ({@code overflow=disconnect}).
+ */
+@Component
+public class OrderStream implements MeterBinder, AutoCloseable {
+
+    public enum Overflow {
+        DROP, DISCONNECT
+    }
+
+    private static final Object HEARTBEAT = new Object();
+
+    private record Event(long seq, OrderDto order) {
+    }
+
+    private final OrderDto[] ring;
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private long published;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int subscriberCapacity;
+    private final Overflow overflow;
+    private final Duration timeout;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    public OrderStream(@Value("${app.orders.stream.replay-size:10000}") int replaySize,
+                       @Value("${app.orders.stream.subscriber-capacity:1000}") int subscriberCapacity,
+                       @Value("${app.orders.stream.overflow:disconnect}") Overflow overflow,
+                       @Value("${app.orders.stream.timeout:30m}") Duration timeout,
+                       @Value("${app.orders.stream.heartbeat:15s}") Duration heartbeat,
+                       @Value("${app.orders.stream.threads:4}") int threads) {
+        if (replaySize < 1 || subscriberCapacity < 1 || threads < 1) {
+            throw new IllegalArgumentException("app.orders.stream replay-size, subscriber-capacity and threads must be at least 1");
+        }
+        this.ring = new OrderDto[replaySize];
+        this.subscriberCapacity = subscriberCapacity;
+        this.overflow = overflow;
+        this.timeout = timeout;
+        this.senders = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("order-stream-"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("order-stream-heartbeat-"));
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream; with {@code lastEventId} set, buffered orders published after that event are
+     * sent first. An id this stream did not hand out replays the whole buffer.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        // replay and registration happen together, so no order is missed or sent twice
+        synchronized (this) {
+            if (lastEventId != null) {
+                long first = Math.max(0, published - ring.length);
+                long seen = sequenceOf(lastEventId);
+                if (seen >= 0 && seen < published) {
+                    first = Math.max(first, seen + 1);
+                }
+                for (long seq = first; seq < published; seq++) {
+                    subscriber.replay(new Event(seq, ring[(int) (seq % ring.length)]));
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onOrdersCreated(OrdersCreatedEvent event) {
+        synchronized (this) {
+            long first = published;
+            for (OrderDto o : event.orders()) {
+                ring[(int) (published % ring.length)] = o;
+                published++;
+            }
+            for (Subscriber subscriber : subscribers) {
+                long seq = first;
+                for (OrderDto o : event.orders()) {
+                    if (!subscriber.offer(new Event(seq++, o))) {
+                        break;
+                    }
+                }
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    // the sequence number of an id from this epoch, -1 for anything else
+    private long sequenceOf(String eventId) {
+        int dash = eventId.indexOf('-');
+        if (dash != epoch.length() || !eventId.startsWith(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        }
+        catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerHeartbeat();
+            subscriber.schedule();
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+        private final ArrayDeque<Object> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void replay(Event e) {
+            queue.add(e);
+        }
+
+        synchronized boolean offer(Event e) {
+            if (closed) {
+                return false;
+            }
+            if (queue.size() < subscriberCapacity) {
+                queue.add(e);
+                return true;
+            }
+            if (overflow == Overflow.DROP) {
+                dropped.increment();
+                return true;
+            }
+            disconnected.increment();
+            close();
+            return false;
+        }
+
+        synchronized void offerHeartbeat() {
+            if (queue.isEmpty()) {
+                queue.add(HEARTBEAT);
+            }
+        }
+
+        void schedule() {
+            synchronized (this) {
+                if (scheduled || closed || queue.isEmpty()) {
+                    return;
+                }
+                scheduled = true;
+            }
+            senders.execute(this);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Object next;
+                synchronized (this) {
+                    next = queue.poll();
+                    if (next == null || closed) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    if (next == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                    else {
+                        Event e = (Event) next;
+                        emitter.send(SseEmitter.event()
+                                .id(epoch + "-" + e.seq())
+                                .name("order")
+                                .data(e.order(), MediaType.APPLICATION_JSON));
+                    }
+                }
+                catch (IOException | IllegalStateException ex) {
+                    // client went away, the container reports it through onError or onCompletion
+                    synchronized (this) {
+                        close();
+                        scheduled = false;
+                    }
+                    return;
+                }
+            }
+        }
+
+        // caller holds the lock; completing may block behind a send to a slow client, so it
+        // never runs on the commit path
+        private void close() {
+            closed = true;
+            queue.clear();
+            subscribers.remove(this);
+            senders.execute(emitter::complete);
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("orders.stream.subscribers", subscribers, Set::size)
+                .register(registry);
+        FunctionCounter.builder("orders.stream.dropped", dropped, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("orders.stream.disconnected", disconnected, LongAdder::sum)
+                .description("subscribers disconnected because they fell behind")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+}
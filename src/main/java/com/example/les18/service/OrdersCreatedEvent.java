@@ -0,0 +1,11 @@
+package com.example.les18.service;
+
+import com.example.les18.dto.OrderDto;
+
+import java.util.List;
+
+/**
+ * Published inside the transaction that inserted the orders.
+ */
+public record OrdersCreatedEvent(List<OrderDto> orders) {
+}
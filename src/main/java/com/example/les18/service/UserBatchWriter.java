@@ -0,0 +1,203 @@
+package com.example.les18.service;
+
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.dto.UserBatchFailureDto;
+import com.example.les18.dto.UserBatchResultDto;
+import com.example.les18.dto.UserDto;
+import com.example.les18.model.Role;
+import com.example.les18.model.User;
+import com.example.les18.repository.UserRepository;
+import com.example.les18.security.RoleRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates users in bulk. Role names are checked against the {@link RoleRegistry}, passwords
+ * are hashed in parallel on a pool with one thread per core, and users are persisted in chunks
+ * of {@code app.users.batch.chunk-size}, one transaction per chunk. A chunk that fails to
+ * commit is retried row by row, so every failure is reported against its own row.
+ */
+@Component
+public class UserBatchWriter implements AutoCloseable {
+
+    private record Row(int index, UserDto user) {
+    }
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder encoder;
+    private final UserRepository userRepos;
+    private final RoleRegistry roleRegistry;
+    private final ReadYourWrites readYourWrites;
+    private final int chunkSize;
+    private final ExecutorService hashPool;
+
+    public UserBatchWriter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                           PasswordEncoder encoder, UserRepository userRepos, RoleRegistry roleRegistry,
+                           ReadYourWrites readYourWrites,
+                           @Value("${app.users.batch.chunk-size:500}") int chunkSize,
+                           @Value("${app.users.batch.hash-threads:0}") int hashThreads) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.encoder = encoder;
+        this.userRepos = userRepos;
+        this.roleRegistry = roleRegistry;
+        this.readYourWrites = readYourWrites;
+        this.chunkSize = chunkSize;
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        this.hashPool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("user-hash-"));
+    }
+
+    public UserBatchResultDto write(List<UserDto> users) {
+        UserBatchResultDto result = new UserBatchResultDto();
+        Set<String> knownRoles = resolveRoles(users);
+        Set<String> seen = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < users.size(); i++) {
+            UserDto user = users.get(i);
+            String error = validate(user, knownRoles, seen);
+            if (error != null) {
+                result.failures.add(new UserBatchFailureDto(i, user.username, error));
+                continue;
+            }
+            chunk.add(new Row(i, user));
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, result);
+        }
+        result.failures.sort((a, b) -> Integer.compare(a.index, b.index));
+        return result;
+    }
+
+    private Set<String> resolveRoles(List<UserDto> users) {
+        Set<String> rolenames = new HashSet<>();
+        for (UserDto user : users) {
+            if (user.roles != null) {
+                rolenames.addAll(List.of(user.roles));
+            }
+        }
+        Set<String> known = new HashSet<>();
+        for (String rolename : rolenames) {
+            if (roleRegistry.exists(rolename)) {
+                known.add(rolename);
+            }
+        }
+        return known;
+    }
+
+    private static String validate(UserDto user, Set<String> knownRoles, Set<String> seen) {
+        if (user.username == null || user.username.isBlank()) {
+            return "username is required";
+        }
+        if (user.password == null || user.password.isEmpty()) {
+            return "password is required";
+        }
+        if (user.roles != null) {
+            for (String rolename : user.roles) {
+                if (!knownRoles.contains(rolename)) {
+                    return "unknown role " + rolename;
+                }
+            }
+        }
+        if (!seen.add(user.username)) {
+            return "duplicate username in batch";
+        }
+        return null;
+    }
+
+    private void writeChunk(List<Row> chunk, UserBatchResultDto result) {
+        List<String> usernames = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            usernames.add(row.user().username);
+        }
+        Set<String> existing = new HashSet<>(userRepos.findExistingUsernames(usernames));
+
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existing.contains(row.user().username)) {
+                result.failures.add(new UserBatchFailureDto(row.index(), row.user().username, "username already exists"));
+            }
+            else {
+                rows.add(row);
+            }
+        }
+
+        List<CompletableFuture<String>> hashes = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            hashes.add(CompletableFuture.supplyAsync(() -> encoder.encode(row.user().password), hashPool));
+        }
+        Map<Row, String> hashed = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            hashed.put(rows.get(i), hashes.get(i).join());
+        }
+
+        try {
+            persist(rows, hashed);
+            result.created += rows.size();
+            rows.forEach(row -> readYourWrites.markWritten(row.user().username));
+        }
+        catch (RuntimeException ex) {
+            for (Row row : rows) {
+                try {
+                    persist(List.of(row), hashed);
+                    result.created++;
+                    readYourWrites.markWritten(row.user().username);
+                }
+                catch (RuntimeException rowEx) {
+                    result.failures.add(new UserBatchFailureDto(row.index(), row.user().username,
+                            NestedExceptionUtils.getMostSpecificCause(rowEx).getMessage()));
+                }
+            }
+        }
+    }
+
+    private void persist(List<Row> rows, Map<Row, String> hashed) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                for (Row row : rows) {
+                    User newUser = new User();
+                    newUser.setUsername(row.user().username);
+                    newUser.setPassword(hashed.get(row));
+
+                    List<Role> userRoles = new ArrayList<>();
+                    if (row.user().roles != null) {
+                        for (String rolename : row.user().roles) {
+                            userRoles.add(entityManager.getReference(Role.class, rolename));
+                        }
+                    }
+                    newUser.setRoles(userRoles);
+                    entityManager.persist(newUser);
+                }
+                entityManager.flush();
+            }
+            finally {
+                entityManager.clear();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        hashPool.shutdownNow();
+    }
+}
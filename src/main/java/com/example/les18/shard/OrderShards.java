@@ -0,0 +1,318 @@
+package com.example.les18.shard;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.journal.OrderIdAllocator;
+import com.example.les18.model.Order;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Spreads the orders over the databases in {@code app.orders.shards.urls}, enabled with
+ * {@code app.orders.shards.enabled}. Ids still come from the orders sequence of the primary
+ * database and an order lives on shard {@code orderid % shards}, so a lookup by id goes to
+ * exactly one shard. Queries over many orders run on the shards in parallel and are merged by
+ * id. Product revenue totals stay on the primary and are not updated atomically with the
+ * shard insert. Every shard records its position and the shard count, and startup fails when
+ * the configured URLs no longer match. With sharding disabled nothing is created and {@link #isEnabled} is false.
+ */
+@Component
+public class OrderShards implements AutoCloseable {
+
+    private static final String CREATE_TABLE_SQL = "create table if not exists orders (" +
+            "orderid integer not null primary key, productname varchar(255), " +
+            "unitprice double precision not null, quantity integer not null, version integer)";
+    private static final String CREATE_LAYOUT_SQL = "create table if not exists order_shard_layout (" +
+            "id integer not null primary key, shard_index integer not null, shard_count integer not null)";
+    private static final String LAYOUT_SQL = "select shard_index, shard_count from order_shard_layout where id = 1";
+    private static final String INSERT_LAYOUT_SQL =
+            "insert into order_shard_layout (id, shard_index, shard_count) values (1, ?, ?)";
+    private static final String INSERT_SQL =
+            "insert into orders (orderid, productname, unitprice, quantity, version) values (?, ?, ?, ?, 0)";
+    private static final String FIND_SQL =
+            "select orderid, productname, unitprice, quantity, version from orders where orderid = ?";
+    private static final String FIND_ALL_SQL =
+            "select orderid, productname, unitprice, quantity, version from orders where orderid in (:ids)";
+    private static final String VERSION_SQL =
+            "select coalesce(version, 0) from orders where orderid = ?";
+    private static final String PAGE_SQL =
+            "select orderid, productname, unitprice, quantity from orders where orderid > ? order by orderid limit ?";
+    private static final String INVOICES_SQL =
+            "select orderid, quantity * unitprice as amount from orders where orderid in (:ids)";
+
+    private static final RowMapper<Order> ORDER_ROW = (rs, rowNum) -> {
+        Order o = new Order(rs.getString("productname"), rs.getDouble("unitprice"), rs.getInt("quantity"));
+        o.setOrderid(rs.getInt("orderid"));
+        o.setVersion(rs.getInt("version"));
+        return o;
+    };
+    private static final RowMapper<OrderDto> ORDER_DTO_ROW = (rs, rowNum) -> new OrderDto(rs.getInt("orderid"),
+            rs.getString("productname"), rs.getDouble("unitprice"), rs.getInt("quantity"));
+    private static final RowMapper<InvoiceDto> INVOICE_ROW = (rs, rowNum) ->
+            new InvoiceDto(rs.getInt("orderid"), rs.getDouble("amount"));
+
+    private boolean enabled;
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private IntSupplier ids;
+    private ExecutorService pool;
+    private int fetchSize;
+
+    @Autowired
+    public OrderShards(Environment env, JdbcTemplate primary, EntityManagerFactory entityManagerFactory) {
+        if (!env.getProperty("app.orders.shards.enabled", Boolean.class, false)) {
+            return;
+        }
+        if (env.getProperty("app.orders.journal.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("app.orders.shards and app.orders.journal cannot be enabled together");
+        }
+        String prefix = "app.orders.shards.";
+        String[] urls = env.getProperty(prefix + "urls", String[].class, new String[0]);
+        if (urls.length == 0) {
+            throw new IllegalStateException(prefix + "urls must list at least one database");
+        }
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + i);
+            shard.setJdbcUrl(urls[i].trim());
+            shard.setUsername(env.getProperty(prefix + "username", env.getProperty("spring.datasource.username")));
+            shard.setPassword(env.getProperty(prefix + "password", env.getProperty("spring.datasource.password")));
+            shard.setDriverClassName(env.getProperty("spring.datasource.driver-class-name"));
+            shard.setMaximumPoolSize(env.getProperty(prefix + "pool-size", Integer.class, 10));
+            dataSources.add(shard);
+            resources.add(shard);
+        }
+        String nextValueSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString("orders_seq");
+        OrderIdAllocator allocator = new OrderIdAllocator(primary, nextValueSql, Order.ID_INITIAL_VALUE, Order.ID_ALLOCATION_SIZE,
+                env.getProperty(prefix + "prefetch-blocks", Integer.class, 4));
+        resources.add(allocator);
+        init(dataSources, allocator::next,
+                env.getProperty(prefix + "threads", Integer.class, 2 * urls.length),
+                env.getProperty(prefix + "fetch-size", Integer.class, 1000));
+    }
+
+    /**
+     * Shards over the given data sources, taking ids from {@code ids}. No data sources means
+     * sharding is disabled.
+     */
+    public OrderShards(List<DataSource> dataSources, IntSupplier ids, int threads, int fetchSize) {
+        if (!dataSources.isEmpty()) {
+            init(dataSources, ids, threads, fetchSize);
+        }
+    }
+
+    private void init(List<DataSource> dataSources, IntSupplier ids, int threads, int fetchSize) {
+        for (int shard = 0; shard < dataSources.size(); shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSources.get(shard));
+            jdbc.execute(CREATE_TABLE_SQL);
+            checkLayout(jdbc, shard, dataSources.size());
+            shards.add(jdbc);
+        }
+        this.ids = ids;
+        this.fetchSize = fetchSize;
+        this.pool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("order-shard-"));
+        this.enabled = true;
+    }
+
+    /**
+     * The first start records every shard's position and the shard count in the shard itself.
+     * Later starts must match: a removed, added or reordered URL would send lookups to the wrong
+     * shard, so startup fails instead.
+     */
+    private static void checkLayout(JdbcTemplate jdbc, int shard, int shardCount) {
+        jdbc.execute(CREATE_LAYOUT_SQL);
+        List<int[]> layout = jdbc.query(LAYOUT_SQL, (rs, rowNum) -> new int[] {rs.getInt(1), rs.getInt(2)});
+        if (layout.isEmpty()) {
+            try {
+                jdbc.update(INSERT_LAYOUT_SQL, shard, shardCount);
+                return;
+            }
+            catch (DuplicateKeyException ex) {
+                // another instance recorded the layout first
+                layout = jdbc.query(LAYOUT_SQL, (rs, rowNum) -> new int[] {rs.getInt(1), rs.getInt(2)});
+            }
+        }
+        int[] recorded = layout.get(0);
+        if (recorded[0] != shard || recorded[1] != shardCount) {
+            throw new IllegalStateException("Shard " + shard + " of " + shardCount + " was created as shard "
+                    + recorded[0] + " of " + recorded[1] + ", app.orders.shards.urls cannot change once orders are stored");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardOf(int orderid) {
+        return Math.floorMod(orderid, shards.size());
+    }
+
+    /**
+     * Gives the orders their ids and version 0 and inserts them, one JDBC batch per shard.
+     * When a shard fails, the orders on the other shards may still have been written.
+     */
+    public void insert(List<Order> orders) {
+        Map<Integer, List<Order>> byShard = new HashMap<>();
+        for (Order o : orders) {
+            o.setOrderid(ids.getAsInt());
+            o.setVersion(0);
+            byShard.computeIfAbsent(shardOf(o.getOrderid()), k -> new ArrayList<>()).add(o);
+        }
+        scatter(byShard.keySet(), shard -> {
+            List<Order> batch = byShard.get(shard);
+            return shards.get(shard).batchUpdate(INSERT_SQL, batch, batch.size(), (ps, o) -> {
+                ps.setInt(1, o.getOrderid());
+                ps.setString(2, o.getProductname());
+                ps.setDouble(3, o.getUnitprice());
+                ps.setInt(4, o.getQuantity());
+            });
+        });
+    }
+
+    public Optional<Order> find(int orderid) {
+        return shards.get(shardOf(orderid)).query(FIND_SQL, ORDER_ROW, orderid).stream().findFirst();
+    }
+
+    /**
+     * Loads the given orders with one query per shard that holds any of them, in no particular order.
+     */
+    public List<Order> findAll(Collection<Integer> orderids) {
+        Map<Integer, List<Integer>> byShard = byShard(orderids);
+        List<List<Order>> parts = scatter(byShard.keySet(), shard ->
+                new NamedParameterJdbcTemplate(shards.get(shard)).query(FIND_ALL_SQL, Map.of("ids", byShard.get(shard)), ORDER_ROW));
+        List<Order> merged = new ArrayList<>();
+        parts.forEach(merged::addAll);
+        return merged;
+    }
+
+    public Optional<Integer> findVersion(int orderid) {
+        return shards.get(shardOf(orderid)).queryForList(VERSION_SQL, Integer.class, orderid).stream().findFirst();
+    }
+
+    public List<OrderDto> findPageAfter(int afterOrderid, int limit) {
+        List<List<OrderDto>> pages = scatter(allShards(),
+                shard -> shards.get(shard).query(PAGE_SQL, ORDER_DTO_ROW, afterOrderid, limit));
+        List<OrderDto> merged = new ArrayList<>();
+        pages.forEach(merged::addAll);
+        merged.sort(Comparator.comparingInt(o -> o.orderid));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    public List<InvoiceDto> findInvoices(Collection<Integer> orderids) {
+        Map<Integer, List<Integer>> byShard = byShard(orderids);
+        List<List<InvoiceDto>> parts = scatter(byShard.keySet(), shard ->
+                new NamedParameterJdbcTemplate(shards.get(shard)).query(INVOICES_SQL, Map.of("ids", byShard.get(shard)), INVOICE_ROW));
+        List<InvoiceDto> merged = new ArrayList<>();
+        parts.forEach(merged::addAll);
+        merged.sort(Comparator.comparingInt(i -> i.orderid));
+        return merged;
+    }
+
+    /**
+     * Visits all orders in id order. Every shard is read in pages of the fetch size, the pages are
+     * merged as they are consumed, so memory use is bounded by one page per shard.
+     */
+    public void forEachOrder(Consumer<OrderDto> action) {
+        List<Deque<OrderDto>> buffers = new ArrayList<>();
+        scatter(allShards(), shard -> new ArrayDeque<>(shards.get(shard).query(PAGE_SQL, ORDER_DTO_ROW, 0, fetchSize)))
+                .forEach(buffers::add);
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Comparator.comparingInt(shard -> buffers.get(shard).peekFirst().orderid));
+        for (int shard = 0; shard < buffers.size(); shard++) {
+            if (!buffers.get(shard).isEmpty()) {
+                heads.add(shard);
+            }
+        }
+        while (!heads.isEmpty()) {
+            int shard = heads.poll();
+            Deque<OrderDto> buffer = buffers.get(shard);
+            OrderDto o = buffer.pollFirst();
+            action.accept(o);
+            if (buffer.isEmpty()) {
+                buffer.addAll(shards.get(shard).query(PAGE_SQL, ORDER_DTO_ROW, o.orderid, fetchSize));
+            }
+            if (!buffer.isEmpty()) {
+                heads.add(shard);
+            }
+        }
+    }
+
+    private Map<Integer, List<Integer>> byShard(Collection<Integer> orderids) {
+        Map<Integer, List<Integer>> byShard = new HashMap<>();
+        for (Integer orderid : orderids) {
+            byShard.computeIfAbsent(shardOf(orderid), k -> new ArrayList<>()).add(orderid);
+        }
+        return byShard;
+    }
+
+    private List<Integer> allShards() {
+        List<Integer> all = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            all.add(shard);
+        }
+        return all;
+    }
+
+    // runs the work for every shard in parallel and returns the results in the order of the shards given
+    private <T> List<T> scatter(Collection<Integer> shardIndexes, IntFunction<T> work) {
+        if (shardIndexes.size() == 1) {
+            return List.of(work.apply(shardIndexes.iterator().next()));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int shard : shardIndexes) {
+            futures.add(CompletableFuture.supplyAsync(() -> work.apply(shard), pool));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        }
+        catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+        return results;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+-- schema as generated by Hibernate for the entities in com.example.les18.model
+create sequence if not exists orders_seq start with 1 increment by 50;
+
+create table if not exists orders (
+    orderid integer not null,
+    productname varchar(255),
+    unitprice float(53) not null,
+    quantity integer not null,
+    version integer,
+    primary key (orderid)
+);
+
+create table if not exists roles (
+    rolename varchar(255) not null,
+    primary key (rolename)
+);
+
+create table if not exists users (
+    username varchar(255) not null,
+    password varchar(255),
+    primary key (username)
+);
+
+create table if not exists users_roles (
+    users_username varchar(255) not null references users,
+    roles_rolename varchar(255) not null references roles
+);
+
+create table if not exists product_revenue (
+    productname varchar(255) not null,
+    revenue float(53) not null,
+    quantity bigint not null,
+    ordercount bigint not null,
+    primary key (productname)
+);
@@ -0,0 +1,2 @@
+-- reference data only, users are not seeded in production
+insert into roles (rolename) values ('ROLE_USER'), ('ROLE_ADMIN') on conflict do nothing;
@@ -0,0 +1,2 @@
+-- stateless token version, survives restarts and is shared by all instances
+alter table users add column if not exists tokenversion bigint default 0 not null;
@@ -0,0 +1,61 @@
+package com.example.les18;
+
+import com.example.les18.concurrent.Bulkheads;
+import com.example.les18.controller.AsyncOrderController;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.security.JwtService;
+import com.example.les18.service.OrderService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.is;
+
+@WebMvcTest(controllers = AsyncOrderController.class, properties = "app.async.enabled=true")
+@Import(Bulkheads.class)
+@ActiveProfiles("test")
+class AsyncOrderControllerUnitTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    JwtService jwtService;
+
+    @MockBean
+    OrderService orderService;
+
+    @Test
+    @WithMockUser(username="testuser", roles="USER")
+    @DisplayName("Should retrieve the order on the order-read bulkhead in async mode")
+    void shouldRetrieveOrderAsync() throws Exception {
+        // arrange
+        OrderDto odto = new OrderDto();
+        odto.productname = "Gazelle fiets";
+        odto.unitprice = 1200;
+        odto.quantity = 2;
+        Mockito.when(orderService.getOrder(7)).thenReturn(odto);
+
+        // act
+        MvcResult result = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/7"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // assert
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.productname", is("Gazelle fiets")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.quantity", is(2)));
+    }
+}
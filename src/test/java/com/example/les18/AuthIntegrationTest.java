@@ -0,0 +1,117 @@
+package com.example.les18;
+
+import com.example.les18.concurrent.Bulkhead;
+import com.example.les18.concurrent.BulkheadFullException;
+import com.example.les18.model.User;
+import com.example.les18.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class AuthIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("authBulkhead")
+    Bulkhead authBulkhead;
+
+    @Autowired
+    UserRepository userRepos;
+
+    @Autowired
+    PasswordEncoder encoder;
+
+    @Test
+    @DisplayName("Should answer 503 with Retry-After when the auth bulkhead is full")
+    void shouldRejectWhenBulkheadFull() throws Exception {
+        // arrange
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Object>> blockers = new ArrayList<>();
+        try {
+            fill(authBulkhead, release, blockers);
+
+            // act + assert
+            this.mockMvc
+                    .perform(MockMvcRequestBuilders.post("/auth")
+                            .contentType(APPLICATION_JSON)
+                            .content("{ \"username\" : \"karel\", \"password\" : \"appel\" }"))
+                    .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                    .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+        }
+        finally {
+            release.countDown();
+            CompletableFuture.allOf(blockers.toArray(new CompletableFuture[0])).join();
+        }
+    }
+
+    @Test
+    @DisplayName("Should store a new hash with the configured strength after signing in with a weaker one")
+    void shouldRehashWeakerPassword() throws Exception {
+        // arrange
+        User user = new User();
+        user.setUsername("auth-rehash");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("appel"));
+        userRepos.save(user);
+
+        // act
+        MvcResult result = this.mockMvc
+                .perform(MockMvcRequestBuilders.post("/auth")
+                        .contentType(APPLICATION_JSON)
+                        .content("{ \"username\" : \"auth-rehash\", \"password\" : \"appel\" }"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.AUTHORIZATION));
+
+        // assert
+        String stored = userRepos.findById("auth-rehash").orElseThrow().getPassword();
+        assertTrue(stored.startsWith("$2a$10$"), stored);
+        assertTrue(encoder.matches("appel", stored));
+    }
+
+    // occupies every worker and queue slot until released
+    private static void fill(Bulkhead bulkhead, CountDownLatch release, List<CompletableFuture<Object>> blockers) {
+        while (true) {
+            try {
+                blockers.add(bulkhead.supply(() -> {
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }));
+            }
+            catch (BulkheadFullException ex) {
+                return;
+            }
+        }
+    }
+}
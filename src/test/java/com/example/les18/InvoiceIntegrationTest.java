@@ -0,0 +1,127 @@
+package com.example.les18;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.InvoiceSummaryDto;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.dto.ProductRevenueDto;
+import com.example.les18.model.ProductRevenue;
+import com.example.les18.repository.ProductRevenueRepository;
+import com.example.les18.service.OrderService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class InvoiceIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductRevenueRepository revenueRepos;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Test
+    @DisplayName("Should compute invoice amounts for several orders in one request")
+    void shouldComputeInvoices() throws Exception {
+        // arrange
+        int first = orderService.putOrder(new OrderDto(0, "Invoice drumstel", 1499.0, 1));
+        int second = orderService.putOrder(new OrderDto(0, "Invoice stokken", 12.5, 4));
+
+        // act
+        String body = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/invoices").param("ids", second + "," + first))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<InvoiceDto> invoices = mapper.readValue(body, new TypeReference<>() { });
+
+        // assert
+        assertEquals(2, invoices.size());
+        assertEquals(first, invoices.get(0).orderid);
+        assertEquals(1499.0, invoices.get(0).amount);
+        assertEquals(second, invoices.get(1).orderid);
+        assertEquals(50.0, invoices.get(1).amount);
+    }
+
+    @Test
+    @DisplayName("Should add every new order to the revenue summary of its product")
+    void shouldKeepSummaryCurrent() throws Exception {
+        // arrange
+        orderService.putOrder(new OrderDto(0, "Invoice bekken", 249.0, 2));
+        orderService.putOrders(List.of(new OrderDto(0, "Invoice bekken", 199.0, 1)).iterator());
+
+        // act
+        String body = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/invoices/summary"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        InvoiceSummaryDto summary = mapper.readValue(body, InvoiceSummaryDto.class);
+
+        // assert
+        ProductRevenueDto bekken = summary.products.stream()
+                .filter(p -> p.productname.equals("Invoice bekken"))
+                .findFirst().orElseThrow();
+        assertEquals(697.0, bekken.revenue);
+        assertEquals(3, bekken.quantity);
+        assertEquals(2, bekken.orders);
+        assertTrue(summary.revenue >= bekken.revenue);
+    }
+
+    @Test
+    @DisplayName("Should count every order when the first orders of a product arrive at the same time")
+    void shouldCreateTotalsOnceUnderConcurrency() throws Exception {
+        // arrange
+        String productname = "Invoice gelijktijdig " + System.nanoTime();
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> orders = new ArrayList<>();
+
+        // act
+        try {
+            for (int i = 0; i < threads; i++) {
+                orders.add(pool.submit(() -> {
+                    start.await();
+                    return orderService.putOrder(new OrderDto(0, productname, 10.0, 2));
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> order : orders) {
+                order.get();
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        // assert
+        ProductRevenue totals = revenueRepos.findById(productname).orElseThrow();
+        assertEquals(threads, totals.getOrdercount());
+        assertEquals(2L * threads, totals.getQuantity());
+        assertEquals(20.0 * threads, totals.getRevenue());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.les18;
+
+import com.example.les18.model.Role;
+import com.example.les18.model.User;
+import com.example.les18.repository.RoleRepository;
+import com.example.les18.repository.UserRepository;
+import com.example.les18.security.JwtService;
+import com.example.les18.security.MyUserDetails;
+import com.example.les18.security.RoleRegistry;
+import com.example.les18.service.OrderService;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+
+// security filters on and a Prometheus registry, so this context gets an in-memory database of its own
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metricsdb")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class MetricsEndpointIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    UserRepository userRepos;
+
+    @Autowired
+    RoleRepository roleRepos;
+
+    @Autowired
+    RoleRegistry roleRegistry;
+
+    @Autowired
+    JwtService jwtService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        for (String rolename : List.of("ROLE_USER", "ROLE_ADMIN")) {
+            Role role = new Role();
+            role.setRolename(rolename);
+            roleRepos.save(role);
+        }
+        roleRegistry.refresh();
+        saveUser("metrics-admin", "ROLE_ADMIN");
+        saveUser("metrics-user", "ROLE_USER");
+    }
+
+    @Test
+    @DisplayName("Should refuse the Prometheus scrape without a token or without the admin role")
+    void shouldRequireAdminForPrometheus() throws Exception {
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, bearer("metrics-user")))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("Should expose the auth and order service meters to an admin")
+    void shouldExposeHotPathMeters() throws Exception {
+        // arrange
+        orderService.listOrders(0, 10);
+
+        // act + assert
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, bearer("metrics-admin")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("auth_filter_seconds_count{phase=\"parse\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("auth_failures_total{cause=\"invalid-token\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("orders_service_seconds_count{")));
+    }
+
+    @Test
+    @DisplayName("Should count a token that cannot be parsed as an auth failure")
+    void shouldCountInvalidToken() throws Exception {
+        // arrange
+        double before = registry.get("auth.failures").tag("cause", "invalid-token").counter().count();
+
+        // act
+        assertThrows(JwtException.class, () -> this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders").header(HttpHeaders.AUTHORIZATION, "Bearer geen.geldig.token")));
+
+        // assert
+        assertEquals(before + 1, registry.get("auth.failures").tag("cause", "invalid-token").counter().count());
+    }
+
+    private void saveUser(String username, String rolename) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("x");
+        user.setRoles(List.of(roleRepos.findById(rolename).orElseThrow()));
+        userRepos.save(user);
+    }
+
+    private String bearer(String username) {
+        MyUserDetails userDetails = new MyUserDetails(userRepos.findById(username).orElseThrow(), roleRegistry);
+        return "Bearer " + jwtService.generateToken(userDetails);
+    }
+}
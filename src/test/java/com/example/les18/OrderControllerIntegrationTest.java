@@ -1,6 +1,6 @@
 package com.example.les18;
 
-
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -9,11 +9,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 @SpringBootTest
@@ -42,4 +47,38 @@ class OrderControllerIntegrationTest {
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.status().isCreated());
     }
+
+    @Test
+    void shouldCreateOrdersInBatch() throws Exception {
+
+        String requestJson = """
+                [
+                    { "productname" : "Fender bas", "unitprice" : 1299.00, "quantity" : 1 },
+                    { "productname" : "Marshall versterker", "unitprice" : 899.00, "quantity" : 2 }
+                ]
+                """;
+
+        MvcResult result = this.mockMvc
+                .perform(MockMvcRequestBuilders.post("/orders/batch")
+                .contentType(APPLICATION_JSON)
+                .content(requestJson))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(2)))
+                .andReturn();
+
+        // the ids come back in request order
+        List<Integer> orderids = JsonPath.read(result.getResponse().getContentAsString(), "$");
+        assertTrue(orderids.get(0) < orderids.get(1));
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/" + orderids.get(0)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.productname", is("Fender bas")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.quantity", is(1)));
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/" + orderids.get(1)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.productname", is("Marshall versterker")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.quantity", is(2)));
+    }
 }
@@ -49,4 +49,18 @@ class OrderControllerUnitTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.unitprice", is(1500.0)))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.quantity", is(5)));
     }
+
+    @Test
+    @WithMockUser(username="testuser", roles="USER")
+    void shouldAnswerNotModifiedWithoutLoadingOrder() throws Exception {
+
+        Mockito.when(orderService.getOrderVersion(123)).thenReturn(0);
+
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/123").header("If-None-Match", "\"o0\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"o0\""));
+
+        Mockito.verify(orderService, Mockito.never()).getOrder(123);
+    }
 }
@@ -0,0 +1,96 @@
+package com.example.les18;
+
+import com.example.les18.dto.OrderDto;
+import com.example.les18.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class OrderExportIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Test
+    @DisplayName("Should stream every order as one JSON object per line, in id order")
+    void shouldExportNdjson() throws Exception {
+        // arrange
+        int first = orderService.putOrder(new OrderDto(0, "Export ndjson versterker", 899.0, 2));
+        int second = orderService.putOrder(new OrderDto(0, "Export ndjson kabel", 9.95, 10));
+
+        // act
+        String body = export("ndjson", "application/x-ndjson");
+
+        // assert
+        List<OrderDto> orders = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            orders.add(mapper.readValue(line, OrderDto.class));
+        }
+        List<Integer> orderids = orders.stream().map(o -> o.orderid).toList();
+        assertTrue(orderids.indexOf(first) >= 0);
+        assertEquals(orderids.indexOf(first) + 1, orderids.indexOf(second));
+        assertEquals(orderids.stream().sorted().toList(), orderids);
+        OrderDto exported = orders.get(orderids.indexOf(second));
+        assertEquals("Export ndjson kabel", exported.productname);
+        assertEquals(9.95, exported.unitprice);
+        assertEquals(10, exported.quantity);
+    }
+
+    @Test
+    @DisplayName("Should stream orders as CSV with a header and quoted product names")
+    void shouldExportCsv() throws Exception {
+        // arrange
+        int orderid = orderService.putOrder(new OrderDto(0, "Export csv \"Les Paul\", zwart", 2399.0, 1));
+
+        // act
+        String body = export("csv", "text/csv;charset=UTF-8");
+
+        // assert
+        String[] lines = body.split("\n");
+        assertEquals("orderid,productname,unitprice,quantity", lines[0]);
+        assertTrue(List.of(lines).contains(orderid + ",\"Export csv \"\"Les Paul\"\", zwart\",2399.0,1"));
+    }
+
+    @Test
+    @DisplayName("Should refuse an unknown export format")
+    void shouldRejectUnknownFormat() throws Exception {
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/export").param("format", "xml"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private String export(String format, String contentType) throws Exception {
+        MvcResult result = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/export").param("format", format))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        return this.mockMvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(contentType))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.les18;
+
+import com.example.les18.dto.OrderDto;
+import com.example.les18.journal.OrderJournal;
+import com.example.les18.metrics.HotPathMetrics;
+import com.example.les18.model.Order;
+import com.example.les18.service.OrdersCreatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// configured like the other integration tests so they share one context and one in-memory database
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class OrderJournalIntegrationTest {
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    // written by the drain thread
+    private final List<OrderDto> published = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Should drain orders journaled before a stop exactly once after the restart")
+    void shouldDrainAfterRestart() throws Exception {
+        // arrange
+        OrderJournal stopped = open(new SimpleMeterRegistry());
+        List<Integer> orderids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderids.add(stopped.append(new Order("Journal herstart " + i, 10.0 + i, 1)));
+        }
+        stopped.close();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        OrderJournal restarted = open(registry);
+        double lagBeforeStart = registry.get("orders.journal.lag").gauge().value();
+
+        // act
+        restarted.start();
+        await(() -> registry.get("orders.journal.lag").gauge().value() == 0);
+        restarted.close();
+
+        // assert
+        assertEquals(5.0, lagBeforeStart);
+        for (int orderid : orderids) {
+            assertEquals(1, rows(orderid));
+        }
+        assertEquals(orderids, published.stream().map(o -> o.orderid).toList());
+        assertTrue(registry.get("orders.journal.flush").timer().count() >= 1);
+        assertEquals(0.0, registry.get("orders.journal.flush.failures").counter().count());
+
+        OrderJournal again = open(new SimpleMeterRegistry());
+        again.start();
+        again.close();
+        assertEquals(5, published.size());
+    }
+
+    @Test
+    @DisplayName("Should skip rows that were committed before a crash lost the checkpoint")
+    void shouldRedrainIdempotently() throws Exception {
+        // arrange
+        OrderJournal crashed = open(new SimpleMeterRegistry());
+        int first = crashed.append(new Order("Journal crash een", 5.0, 1));
+        int second = crashed.append(new Order("Journal crash twee", 6.0, 2));
+        int third = crashed.append(new Order("Journal crash drie", 7.0, 3));
+        crashed.close();
+        // the drain had committed the first two rows, the checkpoint was never written
+        for (int orderid : List.of(first, second)) {
+            jdbc.update("insert into orders (orderid, productname, unitprice, quantity, version) values (?, ?, 1.0, 1, 0)",
+                    orderid, "Journal crash " + orderid);
+        }
+        MeterRegistry registry = new SimpleMeterRegistry();
+        OrderJournal restarted = open(registry);
+
+        // act
+        restarted.start();
+        await(() -> registry.get("orders.journal.lag").gauge().value() == 0);
+        restarted.close();
+
+        // assert
+        assertEquals(1, rows(first));
+        assertEquals(1, rows(second));
+        assertEquals(1, rows(third));
+        assertEquals(List.of(third), published.stream().map(o -> o.orderid).toList());
+        assertEquals("Journal crash drie", jdbc.queryForObject("select productname from orders where orderid = ?", String.class, third));
+    }
+
+    @Test
+    @DisplayName("Should count a failed flush and keep the order journaled")
+    void shouldCountFlushFailures() throws Exception {
+        // arrange
+        MeterRegistry registry = new SimpleMeterRegistry();
+        OrderJournal journal = open(registry);
+        int orderid = journal.append(new Order("Journal te lang ".repeat(20), 1.0, 1));
+
+        // act
+        journal.start();
+        await(() -> registry.get("orders.journal.flush.failures").counter().count() >= 1);
+        journal.close();
+
+        // assert
+        assertEquals(1.0, registry.get("orders.journal.lag").gauge().value());
+        assertEquals(0, rows(orderid));
+        assertTrue(published.isEmpty());
+    }
+
+    private OrderJournal open(MeterRegistry registry) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.orders.journal.enabled", "true")
+                .withProperty("app.orders.journal.dir", dir.toString())
+                .withProperty("app.orders.journal.fsync", "always")
+                .withProperty("app.orders.journal.drain-interval", "10ms");
+        // durations and sizes are converted the way Spring Boot's environment does it
+        env.setConversionService(new ApplicationConversionService());
+        HotPathMetrics metrics = new HotPathMetrics(
+                new StaticListableBeanFactory(Map.of("registry", registry)).getBeanProvider(MeterRegistry.class), true);
+        OrderJournal journal = new OrderJournal(env, jdbc, transactionManager, entityManagerFactory,
+                event -> published.addAll(((OrdersCreatedEvent) event).orders()), metrics);
+        journal.bindTo(registry);
+        return journal;
+    }
+
+    private int rows(int orderid) {
+        return jdbc.queryForObject("select count(*) from orders where orderid = ?", Integer.class, orderid);
+    }
+
+    // the journal drains on its own thread
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
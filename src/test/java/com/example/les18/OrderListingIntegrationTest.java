@@ -0,0 +1,75 @@
+package com.example.les18;
+
+import com.example.les18.dto.OrderDto;
+import com.example.les18.dto.OrderPageDto;
+import com.example.les18.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class OrderListingIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Test
+    @DisplayName("Should page by order id and follow the next cursor to the last page")
+    void shouldFollowCursorToLastPage() throws Exception {
+        // arrange
+        int first = orderService.putOrder(new OrderDto(0, "Paging snaren", 12.5, 3));
+        int second = orderService.putOrder(new OrderDto(0, "Paging plectrums", 4.95, 20));
+        int third = orderService.putOrder(new OrderDto(0, "Paging capo", 19.0, 1));
+
+        // act
+        OrderPageDto page1 = list(Integer.toString(first - 1), 2);
+        OrderPageDto page2 = list(page1.next, 2);
+
+        // assert
+        assertEquals(List.of(first, second), page1.orders.stream().map(o -> o.orderid).toList());
+        assertNotNull(page1.next);
+        assertEquals(List.of(third), page2.orders.stream().map(o -> o.orderid).toList());
+        assertNull(page2.next);
+        OrderDto capo = page2.orders.get(0);
+        assertEquals("Paging capo", capo.productname);
+        assertEquals(19.0, capo.unitprice);
+        assertEquals(1, capo.quantity);
+    }
+
+    @Test
+    @DisplayName("Should answer bad request for a malformed cursor")
+    void shouldRejectMalformedCursor() throws Exception {
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders").param("after", "not a cursor"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private OrderPageDto list(String after, int limit) throws Exception {
+        String body = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders")
+                        .param("after", after)
+                        .param("limit", Integer.toString(limit)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(body, OrderPageDto.class);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.les18;
+
+import com.example.les18.dto.UserBatchFailureDto;
+import com.example.les18.dto.UserBatchResultDto;
+import com.example.les18.model.Role;
+import com.example.les18.model.User;
+import com.example.les18.repository.RoleRepository;
+import com.example.les18.repository.UserRepository;
+import com.example.les18.security.RoleRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class UserBatchIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    UserRepository userRepos;
+
+    @Autowired
+    RoleRepository roleRepos;
+
+    @Autowired
+    RoleRegistry roleRegistry;
+
+    @Autowired
+    PasswordEncoder encoder;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Test
+    @DisplayName("Should create the valid users of a batch and report every other row with its reason")
+    void shouldReportFailuresPerRow() throws Exception {
+        // arrange
+        Role role = new Role();
+        role.setRolename("ROLE_USER");
+        roleRepos.save(role);
+        roleRegistry.refresh();
+        User existing = new User();
+        existing.setUsername("batch-bestaand");
+        existing.setPassword("x");
+        userRepos.save(existing);
+
+        String requestJson = """
+                [
+                    { "username" : "batch-anna", "password" : "appel", "roles" : ["ROLE_USER"] },
+                    { "username" : "batch-bert", "password" : "", "roles" : ["ROLE_USER"] },
+                    { "username" : "batch-cor", "password" : "peer", "roles" : ["ROLE_ONBEKEND"] },
+                    { "username" : "batch-anna", "password" : "banaan", "roles" : [] },
+                    { "username" : "batch-bestaand", "password" : "kiwi", "roles" : [] },
+                    { "username" : "batch-dirk", "password" : "mango", "roles" : [] }
+                ]
+                """;
+
+        // act
+        String body = this.mockMvc
+                .perform(MockMvcRequestBuilders.post("/users/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        UserBatchResultDto result = mapper.readValue(body, UserBatchResultDto.class);
+
+        // assert
+        assertEquals(2, result.created);
+        assertEquals(List.of(1, 2, 3, 4), result.failures.stream().map(f -> f.index).toList());
+        List<String> errors = result.failures.stream().map(f -> f.error).toList();
+        assertEquals("password is required", errors.get(0));
+        assertEquals("unknown role ROLE_ONBEKEND", errors.get(1));
+        assertEquals("duplicate username in batch", errors.get(2));
+        assertEquals("username already exists", errors.get(3));
+        UserBatchFailureDto duplicate = result.failures.get(2);
+        assertEquals("batch-anna", duplicate.username);
+
+        User anna = userRepos.findById("batch-anna").orElseThrow();
+        assertTrue(encoder.matches("appel", anna.getPassword()));
+        assertEquals(List.of("ROLE_USER"), anna.getRoles().stream().map(Role::getRolename).toList());
+        assertTrue(userRepos.existsById("batch-dirk"));
+        assertEquals("x", userRepos.findById("batch-bestaand").orElseThrow().getPassword());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.les18;
+
+import com.example.les18.controller.WireFormatConfig;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.service.OrderService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class WireFormatIntegrationTest {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(WireFormatConfig.APPLICATION_SMILE_VALUE);
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    OrderService orderService;
+
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+    @Test
+    @DisplayName("Should answer an order in CBOR when the client accepts CBOR")
+    void shouldNegotiateCbor() throws Exception {
+        // arrange
+        int orderid = orderService.putOrder(new OrderDto(0, "Wire cbor synthesizer", 1899.0, 1));
+
+        // act
+        byte[] body = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/" + orderid).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // assert
+        OrderDto order = cbor.readValue(body, OrderDto.class);
+        assertEquals("Wire cbor synthesizer", order.productname);
+        assertEquals(1899.0, order.unitprice);
+        assertEquals(1, order.quantity);
+    }
+
+    @Test
+    @DisplayName("Should read a Smile batch and answer in Smile")
+    void shouldReadAndWriteSmile() throws Exception {
+        // arrange
+        byte[] request = smile.writeValueAsBytes(List.of(
+                new OrderDto(0, "Wire smile piano", 3499.0, 1),
+                new OrderDto(0, "Wire smile kruk", 89.0, 2)));
+
+        // act
+        byte[] body = this.mockMvc
+                .perform(MockMvcRequestBuilders.post("/orders/batch")
+                        .contentType(APPLICATION_SMILE)
+                        .accept(APPLICATION_SMILE)
+                        .content(request))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.content().contentType(APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // assert
+        List<Integer> orderids = smile.readValue(body, new TypeReference<>() { });
+        assertEquals(2, orderids.size());
+        assertEquals("Wire smile kruk", orderService.getOrder(orderids.get(1)).productname);
+    }
+
+    @Test
+    @DisplayName("Should export orders as a CBOR sequence and as concatenated Smile documents")
+    void shouldExportBinaryFormats() throws Exception {
+        // arrange
+        int orderid = orderService.putOrder(new OrderDto(0, "Wire export koptelefoon", 149.0, 3));
+
+        // act
+        List<OrderDto> cborOrders = readAll(cbor, export("cbor", "application/cbor-seq"));
+        List<OrderDto> smileOrders = readAll(smile, export("smile", WireFormatConfig.APPLICATION_SMILE_VALUE));
+
+        // assert
+        assertEquals(cborOrders.size(), smileOrders.size());
+        OrderDto fromCbor = cborOrders.stream().filter(o -> o.orderid == orderid).findFirst().orElseThrow();
+        OrderDto fromSmile = smileOrders.stream().filter(o -> o.orderid == orderid).findFirst().orElseThrow();
+        assertEquals("Wire export koptelefoon", fromCbor.productname);
+        assertEquals(149.0, fromCbor.unitprice);
+        assertEquals(fromCbor.productname, fromSmile.productname);
+        assertEquals(fromCbor.quantity, fromSmile.quantity);
+    }
+
+    private byte[] export(String format, String contentType) throws Exception {
+        MvcResult result = this.mockMvc
+                .perform(MockMvcRequestBuilders.get("/orders/export").param("format", format))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        return this.mockMvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(contentType))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private static List<OrderDto> readAll(ObjectMapper mapper, byte[] body) throws Exception {
+        try (MappingIterator<OrderDto> orders = mapper.readerFor(OrderDto.class).readValues(body)) {
+            return orders.readAll();
+        }
+    }
+}
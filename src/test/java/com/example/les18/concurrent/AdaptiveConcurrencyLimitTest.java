@@ -0,0 +1,59 @@
+package com.example.les18.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(5).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    @DisplayName("Should reject requests over the limit until one is released")
+    void shouldRejectOverLimit() {
+        // arrange
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, Duration.ofMillis(100), 0.5);
+
+        // act
+        boolean first = limit.tryAcquire();
+        boolean second = limit.tryAcquire();
+        boolean third = limit.tryAcquire();
+        limit.release(FAST, false);
+        boolean fourth = limit.tryAcquire();
+
+        // assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertTrue(fourth);
+        assertEquals(2, limit.inflight());
+    }
+
+    @Test
+    @DisplayName("Should back off on slow requests and grow again while fast requests use the limit")
+    void shouldAdaptToLatency() {
+        // arrange
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 40, Duration.ofMillis(100), 0.5);
+
+        // act
+        limit.tryAcquire();
+        limit.release(SLOW, false);
+        int afterSlow = limit.limit();
+        for (int i = 0; i < 10_000; i++) {
+            for (int j = 0; j < limit.limit(); j++) {
+                limit.tryAcquire();
+            }
+            while (limit.inflight() > 0) {
+                limit.release(FAST, false);
+            }
+        }
+
+        // assert
+        assertEquals(10, afterSlow);
+        assertEquals(40, limit.limit());
+    }
+}
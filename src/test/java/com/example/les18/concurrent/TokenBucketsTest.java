@@ -0,0 +1,32 @@
+package com.example.les18.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    @Test
+    @DisplayName("Should allow a burst per user and then ask the user to wait")
+    void shouldLimitEachUser() {
+        // arrange
+        TokenBuckets buckets = new TokenBuckets(0.1, 3, Duration.ofMinutes(1), 100);
+
+        // act
+        long first = buckets.tryAcquire("karel");
+        long second = buckets.tryAcquire("karel");
+        long third = buckets.tryAcquire("karel");
+        long fourth = buckets.tryAcquire("karel");
+        long other = buckets.tryAcquire("piet");
+
+        // assert
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(0, third);
+        assertTrue(fourth > Duration.ofSeconds(9).toNanos(), "wait " + fourth);
+        assertEquals(0, other);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.les18.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderCursorTest {
+
+    @Test
+    @DisplayName("Should decode an encoded cursor to the same order id")
+    void shouldRoundTrip() {
+        // act
+        String cursor = OrderCursor.encode(1234567);
+
+        // assert
+        assertFalse(cursor.contains("1234567"));
+        assertEquals(1234567, OrderCursor.decode(cursor));
+    }
+
+    @Test
+    @DisplayName("Should start at the beginning without a cursor and accept a plain order id")
+    void shouldAcceptMissingCursorAndPlainId() {
+        // act + assert
+        assertEquals(0, OrderCursor.decode(null));
+        assertEquals(0, OrderCursor.decode(""));
+        assertEquals(42, OrderCursor.decode("42"));
+    }
+
+    @Test
+    @DisplayName("Should answer bad request for a cursor it did not hand out")
+    void shouldRejectForeignCursor() {
+        // arrange
+        String foreign = Base64.getUrlEncoder().encodeToString("x:42".getBytes(StandardCharsets.US_ASCII));
+
+        // act
+        ResponseStatusException notBase64 = assertThrows(ResponseStatusException.class, () -> OrderCursor.decode("!!"));
+        ResponseStatusException wrongPrefix = assertThrows(ResponseStatusException.class, () -> OrderCursor.decode(foreign));
+
+        // assert
+        assertEquals(HttpStatus.BAD_REQUEST, notBase64.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, wrongPrefix.getStatusCode());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.les18.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(true, Duration.ofMinutes(1));
+
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("routing-primary");
+        replica = database("routing-replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to the replica and everything else to the primary")
+    void shouldRouteReadOnlyToReplica() {
+        // arrange
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelection.ROUND_ROBIN, readYourWrites, Duration.ZERO);
+
+        // act
+        String write = whereAmI(routing);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        String read = whereAmI(routing);
+
+        // assert
+        assertEquals("routing-primary", write);
+        assertEquals("routing-replica", read);
+    }
+
+    @Test
+    @DisplayName("Should read from the primary when the replica is down")
+    void shouldFallBackToPrimary() {
+        // arrange
+        DataSource down = new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("connection refused");
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                throw new SQLException("connection refused");
+            }
+        };
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, List.of(down, replica),
+                ReplicaSelection.LEAST_CONNECTIONS, readYourWrites, Duration.ZERO);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // act
+        String first = whereAmI(routing);
+        String second = whereAmI(routing);
+
+        // assert
+        assertEquals("routing-primary", first);
+        assertEquals("routing-replica", second);
+    }
+
+    @Test
+    @DisplayName("Should keep a user's reads on the primary right after that user wrote")
+    void shouldReadYourWrites() {
+        // arrange
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelection.ROUND_ROBIN, readYourWrites, Duration.ZERO);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null));
+        readYourWrites.markWritten();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // act
+        String writerRead = whereAmI(routing);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader", null));
+        String readerRead = whereAmI(routing);
+
+        // assert
+        assertEquals("routing-primary", writerRead);
+        assertEquals("routing-replica", readerRead);
+    }
+
+    @Test
+    @DisplayName("Should keep the sign-in of a just created user on the primary")
+    void shouldReadForNewUser() {
+        // arrange
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, List.of(replica),
+                ReplicaSelection.ROUND_ROBIN, readYourWrites, Duration.ZERO);
+        SecurityContextHolder.getContext().setAuthentication(
+                new AnonymousAuthenticationToken("key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        readYourWrites.markWritten("newuser");
+        readYourWrites.markWritten();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // act
+        String signInRead = readYourWrites.readFor("newuser", () -> whereAmI(routing));
+        String anonymousRead = whereAmI(routing);
+
+        // assert
+        assertEquals("routing-primary", signInRead);
+        assertEquals("routing-replica", anonymousRead);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists whoami (name varchar(32))");
+        jdbc.update("delete from whoami");
+        jdbc.update("insert into whoami values (?)", name);
+        return dataSource;
+    }
+
+    private static String whereAmI(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select name from whoami", String.class);
+    }
+}
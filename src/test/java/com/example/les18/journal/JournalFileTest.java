@@ -0,0 +1,58 @@
+package com.example.les18.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Should read appended records across segment rolls")
+    void shouldReadAcrossSegments() throws Exception {
+        // arrange
+        JournalFile journal = new JournalFile(dir, 64, FsyncPolicy.NONE);
+        for (int i = 0; i < 10; i++) {
+            journal.append(("order-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        // act
+        JournalFile.Batch batch = journal.read(journal.readCheckpoint(), 100);
+
+        // assert
+        assertEquals(10, batch.records().size());
+        assertEquals("order-9", new String(batch.records().get(9), StandardCharsets.UTF_8));
+        assertEquals(journal.writePosition(), batch.end());
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Should replay records after the checkpoint when reopened")
+    void shouldReplayAfterCheckpoint() throws Exception {
+        // arrange
+        JournalFile journal = new JournalFile(dir, 1024, FsyncPolicy.ALWAYS);
+        journal.append("first".getBytes(StandardCharsets.UTF_8));
+        long afterFirst = journal.append("second".getBytes(StandardCharsets.UTF_8)) - JournalFile.HEADER_SIZE - "second".length();
+        journal.append("third".getBytes(StandardCharsets.UTF_8));
+        journal.checkpoint(afterFirst);
+        journal.close();
+
+        // act
+        JournalFile reopened = new JournalFile(dir, 1024, FsyncPolicy.ALWAYS);
+        reopened.append("fourth".getBytes(StandardCharsets.UTF_8));
+        JournalFile.Batch batch = reopened.read(reopened.readCheckpoint(), 100);
+
+        // assert
+        assertEquals(3, batch.records().size());
+        assertEquals("second", new String(batch.records().get(0), StandardCharsets.UTF_8));
+        assertEquals("fourth", new String(batch.records().get(2), StandardCharsets.UTF_8));
+        reopened.close();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.les18.journal;
+
+import com.example.les18.model.Order;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.PooledOptimizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIdAllocatorTest {
+
+    private static final String NEXT_VALUE_SQL = "select next value for orders_seq";
+
+    private JdbcTemplate jdbc;
+    private OrderIdAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:order-id-allocator;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbc.execute("drop sequence if exists orders_seq");
+        // as in V1__initial_schema.sql
+        jdbc.execute("create sequence orders_seq start with 1 increment by 50");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (allocator != null) {
+            allocator.close();
+        }
+    }
+
+    @ParameterizedTest(name = "{0} allocator ids first")
+    @ValueSource(ints = {0, 1, 3, 70})
+    @DisplayName("Should never hand out an id Hibernate's pooled optimizer also hands out")
+    void shouldNotCollideWithHibernate(int allocatorIdsFirst) {
+        // arrange
+        allocator = new OrderIdAllocator(jdbc, NEXT_VALUE_SQL, Order.ID_INITIAL_VALUE, Order.ID_ALLOCATION_SIZE, 1);
+        PooledOptimizer hibernate = new PooledOptimizer(Integer.class, Order.ID_ALLOCATION_SIZE);
+        hibernate.injectInitialValue(Order.ID_INITIAL_VALUE);
+        AccessCallback sequence = new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Integer.class)
+                        .initialize(jdbc.queryForObject(NEXT_VALUE_SQL, Long.class));
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return null;
+            }
+        };
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < allocatorIdsFirst; i++) {
+            assertTrue(ids.add(allocator.next()));
+        }
+
+        // act
+        for (int round = 0; round < 200; round++) {
+            assertTrue(ids.add((Integer) hibernate.generate(sequence)), "Hibernate id handed out twice");
+            for (int i = 0; i < 1 + round % 3; i++) {
+                assertTrue(ids.add(allocator.next()), "allocator id handed out twice");
+            }
+        }
+
+        // assert
+        assertTrue(ids.contains(Order.ID_INITIAL_VALUE));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.les18.security;
+
+import com.example.les18.concurrent.AdaptiveConcurrencyLimit;
+import com.example.les18.concurrent.TokenBuckets;
+import com.example.les18.metrics.HotPathMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final HotPathMetrics metrics = new HotPathMetrics(
+            new StaticListableBeanFactory(Map.of("registry", registry)).getBeanProvider(MeterRegistry.class), true);
+    private final TestController controller = new TestController();
+
+    @RestController
+    static class TestController {
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        @GetMapping("/orders")
+        String orders() {
+            return "orders";
+        }
+
+        @GetMapping("/orders/fail")
+        String fail() {
+            throw new IllegalStateException("database gone");
+        }
+
+        @GetMapping("/orders/async")
+        CompletableFuture<String> async() {
+            return pending;
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After once a user has used up its burst, other users still pass")
+    void shouldLimitRatePerPrincipal() throws Exception {
+        // arrange
+        MockMvc mockMvc = mockMvc(new TokenBuckets(1.0, 2, Duration.ofMinutes(5), 100),
+                new AdaptiveConcurrencyLimit(100, 10, 1000, Duration.ofSeconds(1), 0.9));
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/orders", "anna")).andExpect(MockMvcResultMatchers.status().isOk());
+        }
+
+        // act + assert
+        mockMvc.perform(get("/orders", "anna"))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+        mockMvc.perform(get("/orders", "bert"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        assertEquals(1.0, registry.get("admission.rejected").tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should release the concurrency permit when the handler fails")
+    void shouldReleaseOnError() throws Exception {
+        // arrange
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, Duration.ofSeconds(1), 0.9);
+        MockMvc mockMvc = mockMvc(new TokenBuckets(1000.0, 1000, Duration.ofMinutes(5), 100), limit);
+
+        // act
+        assertThrows(ServletException.class, () -> mockMvc.perform(get("/orders/fail", "anna")));
+
+        // assert
+        assertEquals(0, limit.inflight());
+        mockMvc.perform(get("/orders", "anna")).andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should hold the concurrency permit of an async request until it completes")
+    void shouldReleaseAfterAsyncDispatch() throws Exception {
+        // arrange
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, Duration.ofSeconds(1), 0.9);
+        MockMvc mockMvc = mockMvc(new TokenBuckets(1000.0, 1000, Duration.ofMinutes(5), 100), limit);
+        MvcResult started = mockMvc.perform(get("/orders/async", "anna"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // act
+        long inflightWhilePending = limit.inflight();
+        mockMvc.perform(get("/orders", "bert"))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "2"));
+        controller.pending.complete("done");
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        // assert
+        assertEquals(1, inflightWhilePending);
+        assertEquals(0, limit.inflight());
+        mockMvc.perform(get("/orders", "bert")).andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    private MockMvc mockMvc(TokenBuckets buckets, AdaptiveConcurrencyLimit limit) {
+        return MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(authentication(), new AdmissionControlFilter(buckets, limit, Duration.ofSeconds(2), metrics))
+                .build();
+    }
+
+    private static MockHttpServletRequestBuilder get(String path, String username) {
+        return MockMvcRequestBuilders.get(path).principal(new TestingAuthenticationToken(username, null));
+    }
+
+    // stands in for JwtRequestFilter: authenticates the request's principal
+    private static Filter authentication() {
+        return (request, response, chain) -> {
+            Principal principal = ((HttpServletRequest) request).getUserPrincipal();
+            if (principal != null) {
+                SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(principal.getName(), null));
+            }
+            try {
+                chain.doFilter(request, response);
+            }
+            finally {
+                SecurityContextHolder.clearContext();
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.les18.security;
+
+import com.example.les18.controller.RoleController;
+import com.example.les18.controller.UserController;
+import com.example.les18.datasource.ReadYourWrites;
+import com.example.les18.dto.RoleDto;
+import com.example.les18.dto.UserDto;
+import com.example.les18.model.User;
+import com.example.les18.repository.RoleRepository;
+import com.example.les18.repository.UserRepository;
+import com.example.les18.service.UserBatchWriter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachedUserDetailsServiceTest {
+
+    @Mock
+    UserRepository userRepos;
+
+    @Mock
+    RoleRepository roleRepos;
+
+    @Mock
+    RoleRegistry roleRegistry;
+
+    @Mock
+    PasswordEncoder encoder;
+
+    @Mock
+    TokenVersions tokenVersions;
+
+    @Mock
+    UserBatchWriter batchWriter;
+
+    @Mock
+    EntityManager entityManager;
+
+    private CachedUserDetailsService userCache;
+    private UserController userController;
+    private RoleController roleController;
+
+    @BeforeEach
+    void setUp() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(false, Duration.ofSeconds(5));
+        userCache = new CachedUserDetailsService(new MyUserDetailsService(userRepos, roleRegistry, readYourWrites),
+                100, Duration.ofMinutes(5));
+        userController = new UserController(userRepos, roleRegistry, encoder, userCache, tokenVersions, batchWriter,
+                entityManager, readYourWrites);
+        roleController = new RoleController(roleRepos, userCache, roleRegistry, readYourWrites);
+
+        User karel = new User();
+        karel.setUsername("karel");
+        karel.setPassword("hash");
+        karel.setRoles(List.of());
+        when(userRepos.findById("karel")).thenReturn(Optional.of(karel));
+        when(roleRegistry.authorities(List.of())).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("Should answer a second lookup of the same user from the cache")
+    void shouldCacheUser() {
+        // act
+        userCache.loadUserByUsername("karel");
+        userCache.loadUserByUsername("karel");
+
+        // assert
+        verify(userRepos, times(1)).findById("karel");
+        assertEquals(1, userCache.hitCount());
+    }
+
+    @Test
+    @DisplayName("Should load the user again after the user was saved")
+    void shouldEvictOnCreateUser() {
+        // arrange
+        userCache.loadUserByUsername("karel");
+        UserDto userDto = new UserDto();
+        userDto.username = "karel";
+        userDto.password = "nieuw";
+        userDto.roles = new String[0];
+
+        // act
+        userController.createUser(userDto);
+        userCache.loadUserByUsername("karel");
+
+        // assert
+        verify(userRepos, times(2)).findById("karel");
+    }
+
+    @Test
+    @DisplayName("Should load the user again after a forced logout")
+    void shouldEvictOnLogout() {
+        // arrange
+        userCache.loadUserByUsername("karel");
+
+        // act
+        userController.logoutUser("karel");
+        userCache.loadUserByUsername("karel");
+
+        // assert
+        verify(userRepos, times(2)).findById("karel");
+        verify(tokenVersions).bump("karel");
+    }
+
+    @Test
+    @DisplayName("Should load every user again after a role was written")
+    void shouldEvictOnRoleWrite() {
+        // arrange
+        userCache.loadUserByUsername("karel");
+        RoleDto roleDto = new RoleDto();
+        roleDto.rolename = "ROLE_MANAGER";
+
+        // act
+        roleController.createRole(roleDto);
+        userCache.loadUserByUsername("karel");
+
+        // assert
+        verify(userRepos, times(2)).findById("karel");
+        verify(roleRegistry).refresh();
+    }
+}
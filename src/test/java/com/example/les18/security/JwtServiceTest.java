@@ -0,0 +1,77 @@
+package com.example.les18.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private final JwtService service = new JwtService(100, Duration.ofMinutes(10));
+
+    private final UserDetails karel = User.withUsername("karel").password("appel").roles("USER").build();
+
+    @Test
+    @DisplayName("Should validate a generated token")
+    void shouldValidateGeneratedToken() {
+        // arrange
+        String token = service.generateToken(karel);
+
+        // act
+        String username = service.extractUsername(token);
+
+        // assert
+        assertEquals("karel", username);
+        assertTrue(service.validateToken(token, karel));
+    }
+
+    @Test
+    @DisplayName("Should serve a verified token from the cache")
+    void shouldServeVerifiedTokenFromCache() {
+        // arrange
+        String token = service.generateToken(karel);
+
+        // act
+        Claims first = service.parseToken(token);
+        Claims second = service.parseToken(token);
+
+        // assert
+        assertSame(first, second);
+    }
+
+    @Test
+    @DisplayName("Should reject a tampered token")
+    void shouldRejectTamperedToken() {
+        // arrange
+        String token = service.generateToken(karel);
+        service.parseToken(token);
+        int signature = token.lastIndexOf('.') + 1;
+        char replacement = token.charAt(signature) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, signature) + replacement + token.substring(signature + 1);
+
+        // act & assert
+        assertThrows(JwtException.class, () -> service.parseToken(tampered));
+    }
+
+    @Test
+    @DisplayName("Should embed roles and token version in a stateless token")
+    void shouldEmbedRolesAndVersion() {
+        // arrange
+        String token = service.generateToken(karel, 3);
+
+        // act
+        Claims claims = service.parseToken(token);
+
+        // assert
+        assertEquals("karel", claims.getSubject());
+        assertEquals(List.of("ROLE_USER"), claims.get(JwtService.ROLES_CLAIM, List.class));
+        assertEquals(3L, claims.get(JwtService.VERSION_CLAIM, Number.class).longValue());
+    }
+}
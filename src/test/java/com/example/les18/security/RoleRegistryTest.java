@@ -0,0 +1,81 @@
+package com.example.les18.security;
+
+import com.example.les18.model.Role;
+import com.example.les18.repository.RoleRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RoleRegistryTest {
+
+    @Mock
+    RoleRepository repository;
+
+    @InjectMocks
+    RoleRegistry registry;
+
+    @Test
+    @DisplayName("Should share authority lists between equal role combinations")
+    void shouldShareAuthorityLists() {
+        // arrange
+        List<String> first = new ArrayList<>(List.of("ROLE_USER", "ROLE_ADMIN"));
+        List<String> second = new ArrayList<>(List.of("ROLE_USER", "ROLE_ADMIN"));
+
+        // act
+        List<GrantedAuthority> a = registry.authorities(first);
+        List<GrantedAuthority> b = registry.authorities(second);
+
+        // assert
+        assertSame(a, b);
+        assertSame(registry.authority("ROLE_USER"), a.get(0));
+        assertEquals("ROLE_ADMIN", a.get(1).getAuthority());
+    }
+
+    @Test
+    @DisplayName("Should reload the roles for an unknown role name")
+    void shouldReloadForUnknownRole() {
+        // arrange
+        Role admin = new Role();
+        admin.setRolename("ROLE_ADMIN");
+        when(repository.findAll()).thenReturn(List.of()).thenReturn(List.of(admin));
+        registry.refresh();
+
+        // act
+        boolean exists = registry.exists("ROLE_ADMIN");
+
+        // assert
+        assertTrue(exists);
+        verify(repository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should not reload the roles again for unknown names within the reload interval")
+    void shouldLimitReloadsForUnknownRoles() {
+        // arrange
+        when(repository.findAll()).thenReturn(List.of());
+
+        // act
+        boolean first = registry.exists("ROLE_BOGUS_1");
+        boolean second = registry.exists("ROLE_BOGUS_2");
+        boolean third = registry.exists("ROLE_BOGUS_3");
+
+        // assert
+        assertFalse(first);
+        assertFalse(second);
+        assertFalse(third);
+        verify(repository, times(1)).findAll();
+    }
+}
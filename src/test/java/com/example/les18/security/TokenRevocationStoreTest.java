@@ -0,0 +1,74 @@
+package com.example.les18.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationStoreTest {
+
+    private final Clock clock = Clock.systemUTC();
+
+    private TokenRevocationStore store = newStore(null);
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should report revoked token ids only")
+    void shouldReportRevokedIdsOnly() {
+        // arrange
+        store.revoke("jti-1", clock.millis() + 60_000);
+
+        // act & assert
+        assertTrue(store.isRevoked("jti-1"));
+        assertFalse(store.isRevoked("jti-2"));
+        assertFalse(store.isRevoked(null));
+    }
+
+    @Test
+    @DisplayName("Should purge token ids once they expire")
+    void shouldPurgeExpiredIds() {
+        // arrange
+        long now = clock.millis();
+        store.revoke("short", now + 60_000);
+        store.revoke("long", now + Duration.ofDays(2).toMillis());
+
+        // act
+        store.purgeExpired(now + Duration.ofMinutes(5).toMillis());
+
+        // assert
+        assertFalse(store.isRevoked("short"));
+        assertTrue(store.isRevoked("long"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("Should restore revocations from the snapshot file")
+    void shouldRestoreFromSnapshot(@TempDir Path dir) {
+        // arrange
+        store.close();
+        Path snapshot = dir.resolve("revocations.txt");
+        store = newStore(snapshot);
+        store.revoke("jti-1", clock.millis() + 60_000);
+        store.close();
+
+        // act
+        store = newStore(snapshot);
+
+        // assert
+        assertTrue(store.isRevoked("jti-1"));
+    }
+
+    private TokenRevocationStore newStore(Path snapshot) {
+        return new TokenRevocationStore(1000, 0.001, Duration.ofMinutes(1), JwtService.TOKEN_VALIDITY, snapshot, clock);
+    }
+}
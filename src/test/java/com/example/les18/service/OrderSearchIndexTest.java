@@ -0,0 +1,103 @@
+package com.example.les18.service;
+
+import com.example.les18.dto.OrderDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderSearchIndexTest {
+
+    private final OrderSearchIndex index = new OrderSearchIndex(null);
+
+    @Test
+    @DisplayName("Should match whole words and word prefixes of every query word")
+    void shouldMatchPrefixesOfAllWords() {
+        // arrange
+        index.add(1, "Philips televisie");
+        index.add(2, "Samsung Televisie 55\"");
+        index.add(3, "Philips scheerapparaat");
+        index.add(4, "Philips-televisiekast");
+
+        // act
+        int[] televisions = index.search("tele", 0, 10);
+        int[] philipsTelevisions = index.search("PHILIPS tel", 0, 10);
+        int[] none = index.search("philips wasmachine", 0, 10);
+
+        // assert
+        assertArrayEquals(new int[] {1, 2, 4}, televisions);
+        assertArrayEquals(new int[] {1, 4}, philipsTelevisions);
+        assertArrayEquals(new int[0], none);
+    }
+
+    @Test
+    @DisplayName("Should page through results in id order, also for orders committed out of order")
+    void shouldPageInIdOrder() {
+        // arrange
+        index.build(action -> {
+            for (int orderid = 1; orderid <= 10; orderid += 2) {
+                action.accept(new OrderDto(orderid, "Koffiezetapparaat", 49.0, 1));
+            }
+        });
+        index.addAll(List.of(new OrderDto(4, "Koffiebonen", 12.5, 2), new OrderDto(3, "Koffiezetapparaat", 49.0, 1)));
+
+        // act
+        int[] first = index.search("koffie", 0, 3);
+        int[] second = index.search("koffie", first[first.length - 1], 3);
+
+        // assert
+        assertTrue(index.isReady());
+        assertArrayEquals(new int[] {1, 3, 4}, first);
+        assertArrayEquals(new int[] {5, 7, 9}, second);
+    }
+
+    @Test
+    @DisplayName("Should intersect prefix matches of several words page by page")
+    void shouldPageThroughIntersectionOfPrefixes() {
+        // arrange
+        for (int orderid = 1; orderid <= 30; orderid++) {
+            String brand = orderid % 2 == 0 ? "Philips" : "Sony";
+            String product = orderid % 3 == 0 ? "televisiekast" : orderid % 3 == 1 ? "televisie" : "radio";
+            index.add(orderid, brand + " " + product);
+        }
+
+        // act
+        int[] first = index.search("tele phil", 0, 4);
+        int[] second = index.search("tele phil", first[first.length - 1], 4);
+        int[] last = index.search("tele phil", 28, 4);
+        int[] beyond = index.search("tele phil", Integer.MAX_VALUE, 4);
+
+        // assert
+        assertArrayEquals(new int[] {4, 6, 10, 12}, first);
+        assertArrayEquals(new int[] {16, 18, 22, 24}, second);
+        assertArrayEquals(new int[] {30}, last);
+        assertArrayEquals(new int[0], beyond);
+    }
+
+    @Test
+    @DisplayName("Should not double orders when a failed build is run again")
+    void shouldRebuildAfterFailure() {
+        // arrange
+        MeterRegistry registry = new SimpleMeterRegistry();
+        index.bindTo(registry);
+        assertThrows(IllegalStateException.class, () -> index.build(action -> {
+            action.accept(new OrderDto(1, "Koffiezetapparaat", 49.0, 1));
+            throw new IllegalStateException("connection lost");
+        }));
+
+        // act
+        index.build(action -> {
+            action.accept(new OrderDto(1, "Koffiezetapparaat", 49.0, 1));
+            action.accept(new OrderDto(2, "Koffiebonen", 12.5, 2));
+        });
+
+        // assert
+        assertTrue(index.isReady());
+        assertArrayEquals(new int[] {1, 2}, index.search("koffie", 0, 10));
+        assertEquals(2.0, registry.get("orders.search.postings").gauge().value());
+    }
+}
@@ -1,18 +1,27 @@
 package com.example.les18.service;
 
+import com.example.les18.dto.OrderDto;
 import com.example.les18.repository.OrderRepository;
+import com.example.les18.shard.OrderShards;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import com.example.les18.model.Order;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +30,15 @@ class OrderServiceTest {
     @Mock
     OrderRepository repository;
 
+    @Mock
+    OrderShards shards;
+
+    @Mock
+    OrderSearchIndex searchIndex;
+
+    @Spy
+    OrderCache cache = new OrderCache(100);
+
     @InjectMocks // dit geeft aan dat we de mocks met @Mock hierin geladen kunnen worden.
     OrderService service;
 
@@ -43,4 +61,32 @@ class OrderServiceTest {
         assertEquals(name, orderDto.productname);
         assertEquals(price, orderDto.unitprice);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should load the uncached orders of a search page with one query")
+    void searchOrdersLoadsMissesAtOnce() {
+        // arrange
+        Order cached = order(1, "Televisie");
+        cache.put(cached);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("tele", 0, 10)).thenReturn(new int[] {1, 2, 3});
+        when(repository.findAllById(Set.of(2, 3))).thenReturn(List.of(order(3, "Televisiekast"), order(2, "Televisie")));
+
+        // act
+        List<OrderDto> first = service.searchOrders("tele", 0, 10);
+        List<OrderDto> second = service.searchOrders("tele", 0, 10);
+
+        // assert
+        assertEquals(List.of(1, 2, 3), first.stream().map(o -> o.orderid).toList());
+        assertEquals("Televisiekast", first.get(2).productname);
+        assertEquals(List.of(1, 2, 3), second.stream().map(o -> o.orderid).toList());
+        verify(repository, times(1)).findAllById(any());
+        verify(repository, never()).findById(anyInt());
+    }
+
+    private static Order order(int orderid, String productname) {
+        Order o = new Order(productname, 10.0, 1);
+        o.setOrderid(orderid);
+        return o;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.les18.service;
+
+import com.example.les18.controller.OrderStreamController;
+import com.example.les18.dto.OrderDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStreamTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\S+)$", Pattern.MULTILINE);
+
+    private OrderStream stream;
+
+    @AfterEach
+    void tearDown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay by event id, also for orders committed out of id order")
+    void shouldReplayBySequence() throws Exception {
+        // arrange
+        stream = newStream(10, 100, OrderStream.Overflow.DISCONNECT);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new OrderStreamController(stream)).build();
+        MvcResult first = connect(mockMvc, null);
+        stream.onOrdersCreated(new OrdersCreatedEvent(List.of(new OrderDto(100, "Televisie", 699.0, 1))));
+        String lastEventId = lastEventId(awaitContent(first, "Televisie"));
+        stream.onOrdersCreated(new OrdersCreatedEvent(List.of(new OrderDto(50, "Wasmachine", 499.0, 1))));
+
+        // act
+        String content = awaitContent(connect(mockMvc, lastEventId), "Wasmachine");
+
+        // assert
+        assertTrue(content.contains("\"orderid\":50"));
+        assertFalse(content.contains("Televisie"));
+    }
+
+    @Test
+    @DisplayName("Should replay the whole buffer for an event id from before a restart")
+    void shouldReplayAllAfterRestart() throws Exception {
+        // arrange
+        stream = newStream(10, 100, OrderStream.Overflow.DISCONNECT);
+        MvcResult beforeRestart = connect(MockMvcBuilders.standaloneSetup(new OrderStreamController(stream)).build(), null);
+        for (int orderid = 1; orderid <= 6; orderid++) {
+            stream.onOrdersCreated(new OrdersCreatedEvent(List.of(new OrderDto(orderid, "Oud " + orderid, 10.0, 1))));
+        }
+        String lastEventId = lastEventId(awaitContent(beforeRestart, "Oud 6"));
+        stream.close();
+        stream = newStream(10, 100, OrderStream.Overflow.DISCONNECT);
+        stream.onOrdersCreated(new OrdersCreatedEvent(List.of(new OrderDto(7, "Nieuw 7", 10.0, 1))));
+        stream.onOrdersCreated(new OrdersCreatedEvent(List.of(new OrderDto(8, "Nieuw 8", 10.0, 1))));
+        MockMvc restarted = MockMvcBuilders.standaloneSetup(new OrderStreamController(stream)).build();
+
+        // act
+        String content = awaitContent(connect(restarted, lastEventId), "Nieuw 8");
+
+        // assert
+        assertTrue(content.contains("Nieuw 7"));
+        String newEpoch = lastEventId(content).split("-")[0];
+        assertNotEquals(lastEventId.split("-")[0], newEpoch);
+    }
+
+    @Test
+    @DisplayName("Should disconnect a subscriber whose queue overflows")
+    void shouldDisconnectOnOverflow() {
+        // arrange
+        stream = newStream(10, 1, OrderStream.Overflow.DISCONNECT);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        stream.bindTo(registry);
+        stream.subscribe(null);
+
+        // act
+        stream.onOrdersCreated(new OrdersCreatedEvent(List.of(
+                new OrderDto(1, "Televisie", 699.0, 1),
+                new OrderDto(2, "Wasmachine", 499.0, 1))));
+
+        // assert
+        assertEquals(0, stream.subscriberCount());
+        assertEquals(1.0, registry.get("orders.stream.disconnected").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should drop events for a subscriber whose queue overflows and keep it connected")
+    void shouldDropOnOverflow() {
+        // arrange
+        stream = newStream(10, 1, OrderStream.Overflow.DROP);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        stream.bindTo(registry);
+        stream.subscribe(null);
+
+        // act
+        stream.onOrdersCreated(new OrdersCreatedEvent(List.of(
+                new OrderDto(1, "Televisie", 699.0, 1),
+                new OrderDto(2, "Wasmachine", 499.0, 1),
+                new OrderDto(3, "Koelkast", 899.0, 1))));
+
+        // assert
+        assertEquals(1, stream.subscriberCount());
+        assertEquals(2.0, registry.get("orders.stream.dropped").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject an empty replay buffer")
+    void shouldRejectEmptyReplayBuffer() {
+        // act + assert
+        assertThrows(IllegalArgumentException.class, () -> newStream(0, 100, OrderStream.Overflow.DROP));
+    }
+
+    private static MvcResult connect(MockMvc mockMvc, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/orders/stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+    }
+
+    private static String lastEventId(String content) {
+        Matcher ids = EVENT_ID.matcher(content);
+        String last = null;
+        while (ids.find()) {
+            last = ids.group(1);
+        }
+        assertNotNull(last);
+        return last;
+    }
+
+    private static OrderStream newStream(int replaySize, int subscriberCapacity, OrderStream.Overflow overflow) {
+        return new OrderStream(replaySize, subscriberCapacity, overflow, Duration.ofMinutes(1), Duration.ofHours(1), 1);
+    }
+
+    // events are written by the stream's sender pool, not by the request thread
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+}
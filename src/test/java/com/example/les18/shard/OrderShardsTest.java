@@ -0,0 +1,108 @@
+package com.example.les18.shard;
+
+import com.example.les18.dto.InvoiceDto;
+import com.example.les18.dto.OrderDto;
+import com.example.les18.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderShardsTest {
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private OrderShards shards;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:order-shard-" + i + ";DB_CLOSE_DELAY=-1", "sa", "");
+            new JdbcTemplate(dataSource).execute("drop table if exists orders");
+            new JdbcTemplate(dataSource).execute("drop table if exists order_shard_layout");
+            dataSources.add(dataSource);
+        }
+        // a fetch size of 2 makes the export merge page through every shard
+        shards = new OrderShards(dataSources, sequence::incrementAndGet, 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shards.close();
+    }
+
+    @Test
+    @DisplayName("Should store every order on the shard its id points to")
+    void shouldStoreOrderOnItsShard() {
+        // arrange
+        List<Order> orders = orders(10);
+
+        // act
+        shards.insert(orders);
+
+        // assert
+        for (Order o : orders) {
+            int shard = shards.shardOf(o.getOrderid());
+            assertEquals(o.getOrderid() % 3, shard);
+            Integer found = new JdbcTemplate(dataSources.get(shard))
+                    .queryForObject("select count(*) from orders where orderid = ?", Integer.class, o.getOrderid());
+            assertEquals(1, found);
+        }
+        assertEquals("Product 4", shards.find(orders.get(4).getOrderid()).orElseThrow().getProductname());
+        assertEquals(0, shards.findVersion(orders.get(4).getOrderid()).orElseThrow());
+        assertTrue(shards.find(999).isEmpty());
+        assertEquals(List.of(2, 4, 9), shards.findAll(List.of(9, 2, 999, 4)).stream().map(Order::getOrderid).sorted().toList());
+    }
+
+    @Test
+    @DisplayName("Should merge pages, invoices and the export of all shards in id order")
+    void shouldMergeShardsInIdOrder() {
+        // arrange
+        shards.insert(orders(10));
+
+        // act
+        List<OrderDto> page = shards.findPageAfter(3, 4);
+        List<InvoiceDto> invoices = shards.findInvoices(List.of(9, 2, 4));
+        List<Integer> exported = new ArrayList<>();
+        shards.forEachOrder(o -> exported.add(o.orderid));
+
+        // assert
+        assertEquals(List.of(4, 5, 6, 7), page.stream().map(o -> o.orderid).toList());
+        assertEquals(List.of(2, 4, 9), invoices.stream().map(i -> i.orderid).toList());
+        assertEquals(2 * 8.5, invoices.get(2).amount, 0.001);
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), exported);
+    }
+
+    @Test
+    @DisplayName("Should refuse to start when the shard URLs changed since the orders were stored")
+    void shouldRejectChangedShardLayout() throws Exception {
+        // arrange
+        shards.insert(orders(10));
+        shards.close();
+        List<DataSource> fewer = dataSources.subList(0, 2);
+        List<DataSource> reordered = List.of(dataSources.get(1), dataSources.get(0), dataSources.get(2));
+
+        // act + assert
+        assertThrows(IllegalStateException.class, () -> new OrderShards(fewer, sequence::incrementAndGet, 2, 2));
+        assertThrows(IllegalStateException.class, () -> new OrderShards(reordered, sequence::incrementAndGet, 3, 2));
+        shards = new OrderShards(dataSources, sequence::incrementAndGet, 3, 2);
+        assertEquals("Product 4", shards.find(5).orElseThrow().getProductname());
+    }
+
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(new Order("Product " + i, 0.5 + i, 2));
+        }
+        return orders;
+    }
+}
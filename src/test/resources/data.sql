@@ -1 +1 @@
-insert into orders(productname,unitprice,quantity) values ('test guitar', 101.01, 1);
+insert into orders(orderid,productname,unitprice,quantity,version) values (next value for orders_seq, 'test guitar', 101.01, 1, 0);
\ No newline at end of file